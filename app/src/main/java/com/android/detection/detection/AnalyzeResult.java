@@ -8,16 +8,32 @@ import androidx.annotation.Nullable;
 
 import com.android.detection.detection.util.BitmapUtils;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 分析结果
+ * <p>
+ * 图像数据通常借自分析器的帧缓冲池，通过引用计数管理其生命周期：创建时持有一个引用，
+ * 每次 {@link #acquire()} 增加一个引用，每次 {@link #release()}（或 {@link #close()}）释放一个引用；
+ * 全部引用释放后图像数据会归还给分析器复用，此后不可再访问图像数据。
+ * 如需长期保留图像数据，请使用 {@link #copy()} 获取一份独立的副本。
+ * <p>
+ * 图像数据可能位于Java堆外的直接缓冲区中（参见 {@link #isDirect()}），此时建议通过 {@link #getImageBuffer()} 访问，
+ * {@link #getImageData()} 会将其复制到堆上。
  */
 @SuppressWarnings("unused")
-public class AnalyzeResult<T> {
+public class AnalyzeResult<T> implements AutoCloseable {
 
     /**
-     * 图像数据
+     * 图像数据；位于直接缓冲区时为首次调用 {@link #getImageData()} 时复制的副本
      */
-    private final byte[] imageData;
+    private byte[] imageData;
+    /**
+     * 直接缓冲区中的图像数据；图像数据位于堆上时为空
+     */
+    @Nullable
+    private final ByteBuffer imageBuffer;
     /**
      * 图像格式：{@link ImageFormat}
      */
@@ -36,23 +52,186 @@ public class AnalyzeResult<T> {
      */
     private final T result;
 
+    /**
+     * 引用计数
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    /**
+     * 全部引用释放后执行的回收动作，如：将图像数据归还到帧缓冲池
+     */
+    @Nullable
+    private final Runnable releaseAction;
+    /**
+     * 帧序号：同一进程内单调递增，越大表示帧越新；未知时为 {@link #NO_SEQUENCE}
+     */
+    private final long sequence;
+
+    /**
+     * 未知的帧序号
+     */
+    public static final long NO_SEQUENCE = -1;
+
     public AnalyzeResult(@NonNull byte[] imageData, int imageFormat, @NonNull FrameMetadata frameMetadata, @NonNull T result) {
+        this(imageData, imageFormat, frameMetadata, result, null);
+    }
+
+    /**
+     * @param releaseAction 全部引用释放后执行的回收动作
+     */
+    public AnalyzeResult(@NonNull byte[] imageData, int imageFormat, @NonNull FrameMetadata frameMetadata, @NonNull T result, @Nullable Runnable releaseAction) {
+        this(imageData, imageFormat, frameMetadata, result, releaseAction, NO_SEQUENCE);
+    }
+
+    /**
+     * @param releaseAction 全部引用释放后执行的回收动作
+     * @param sequence      帧序号
+     */
+    public AnalyzeResult(@NonNull byte[] imageData, int imageFormat, @NonNull FrameMetadata frameMetadata, @NonNull T result, @Nullable Runnable releaseAction, long sequence) {
         this.imageData = imageData;
+        this.imageBuffer = null;
+        this.imageFormat = imageFormat;
+        this.frameMetadata = frameMetadata;
+        this.result = result;
+        this.releaseAction = releaseAction;
+        this.sequence = sequence;
+    }
+
+    /**
+     * 图像数据位于直接缓冲区
+     *
+     * @param imageBuffer   图像数据，位置为0，上限为图像数据的大小
+     * @param releaseAction 全部引用释放后执行的回收动作
+     * @param sequence      帧序号
+     */
+    public AnalyzeResult(@NonNull ByteBuffer imageBuffer, int imageFormat, @NonNull FrameMetadata frameMetadata, @NonNull T result, @Nullable Runnable releaseAction, long sequence) {
+        this.imageData = null;
+        this.imageBuffer = imageBuffer;
         this.imageFormat = imageFormat;
         this.frameMetadata = frameMetadata;
         this.result = result;
+        this.releaseAction = releaseAction;
+        this.sequence = sequence;
+    }
+
+    /**
+     * 增加一个引用；每次调用都需要对应一次 {@link #release()}
+     *
+     * @return {@link AnalyzeResult}
+     */
+    @NonNull
+    public AnalyzeResult<T> acquire() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("AnalyzeResult has already been released.");
+            }
+        } while (!refCount.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * 释放一个引用；全部引用释放后图像数据会归还给分析器
+     */
+    public void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            if (releaseAction != null) {
+                releaseAction.run();
+            }
+        } else if (count < 0) {
+            refCount.set(0);
+            throw new IllegalStateException("AnalyzeResult has already been released.");
+        }
+    }
+
+    /**
+     * 同 {@link #release()}，便于配合 try-with-resources 使用
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * 是否已释放全部引用
+     *
+     * @return 返回{@code true} 表示已释放，此时不可再访问图像数据
+     */
+    public boolean isReleased() {
+        return refCount.get() <= 0;
+    }
+
+    /**
+     * 复制一份不依赖帧缓冲池的分析结果，可长期保留
+     *
+     * @return 独立的 {@link AnalyzeResult}，无需释放
+     */
+    @NonNull
+    public AnalyzeResult<T> copy() {
+        byte[] data = getImageData();
+        return new AnalyzeResult<>(data.clone(), imageFormat, frameMetadata, result, null, sequence);
+    }
+
+    private void checkNotReleased() {
+        if (isReleased()) {
+            throw new IllegalStateException("AnalyzeResult has already been released.");
+        }
     }
 
     /**
      * 获取图像帧数据：YUV数据
+     * <p>
+     * 图像数据位于直接缓冲区时，首次调用会将其复制到堆上
      *
      * @return 图像帧数据：YUV数据
      */
     @NonNull
-    public byte[] getImageData() {
+    public synchronized byte[] getImageData() {
+        checkNotReleased();
+        if (imageData == null && imageBuffer != null) {
+            ByteBuffer buffer = imageBuffer.duplicate();
+            buffer.rewind();
+            imageData = new byte[buffer.remaining()];
+            buffer.get(imageData);
+        }
         return imageData;
     }
 
+    /**
+     * 获取图像帧数据的只读视图，不复制数据
+     *
+     * @return 图像帧数据：YUV数据；位置为0，上限为图像数据的大小
+     */
+    @NonNull
+    public ByteBuffer getImageBuffer() {
+        checkNotReleased();
+        if (imageBuffer != null) {
+            ByteBuffer buffer = imageBuffer.asReadOnlyBuffer();
+            buffer.rewind();
+            return buffer;
+        }
+        return ByteBuffer.wrap(imageData).asReadOnlyBuffer();
+    }
+
+    /**
+     * 图像数据是否位于Java堆外的直接缓冲区
+     *
+     * @return 返回{@code true} 表示位于直接缓冲区
+     */
+    public boolean isDirect() {
+        return imageBuffer != null;
+    }
+
+    /**
+     * 获取帧序号：同一进程内单调递增，可用于判断结果的先后
+     *
+     * @return 帧序号；未知时为 {@link #NO_SEQUENCE}
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
     /**
      * 获取图像格式：{@link ImageFormat}
      *
@@ -74,6 +253,8 @@ public class AnalyzeResult<T> {
 
     /**
      * 获取分析图像
+     * <p>
+     * 启用感兴趣区域时为裁剪后的图像，参见 {@link FrameMetadata#getCropRect()}
      *
      * @return 分析的图像
      */
@@ -83,7 +264,10 @@ public class AnalyzeResult<T> {
             throw new IllegalArgumentException("only support ImageFormat.NV21 for now.");
         }
         if (bitmap == null) {
-            bitmap = BitmapUtils.getBitmap(imageData, frameMetadata);
+            checkNotReleased();
+            bitmap = imageBuffer == null
+                    ? BitmapUtils.getBitmap(imageData, frameMetadata)
+                    : BitmapUtils.getBitmap(imageBuffer.duplicate(), frameMetadata.getWidth(), frameMetadata.getHeight(), frameMetadata.getRotation());
         }
         return bitmap;
     }
@@ -100,15 +284,15 @@ public class AnalyzeResult<T> {
     }
 
     /**
-     * 获取图像的宽
+     * 获取图像的宽：分析结果坐标所在的完整帧（旋转后）的宽
      *
      * @return 图像的宽
      */
     public int getImageWidth() {
         if (frameMetadata.getRotation() % 180 == 0) {
-            return frameMetadata.getWidth();
+            return frameMetadata.getSourceWidth();
         }
-        return frameMetadata.getHeight();
+        return frameMetadata.getSourceHeight();
     }
 
     /**
@@ -123,15 +307,15 @@ public class AnalyzeResult<T> {
     }
 
     /**
-     * 获取图像的高
+     * 获取图像的高：分析结果坐标所在的完整帧（旋转后）的高
      *
      * @return 图像的高
      */
     public int getImageHeight() {
         if (frameMetadata.getRotation() % 180 == 0) {
-            return frameMetadata.getHeight();
+            return frameMetadata.getSourceHeight();
         }
-        return frameMetadata.getWidth();
+        return frameMetadata.getSourceWidth();
     }
 
     /**
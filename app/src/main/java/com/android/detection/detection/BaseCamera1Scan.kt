@@ -1,10 +1,10 @@
 package com.android.detection.detection
 
 import android.annotation.SuppressLint
-import android.content.ContentValues
 import android.content.Context
 import android.content.Context.CAMERA_SERVICE
 import android.content.Context.WINDOW_SERVICE
+import android.graphics.ImageFormat
 import android.graphics.PixelFormat
 import android.hardware.Camera
 import android.hardware.Camera.PreviewCallback
@@ -14,19 +14,31 @@ import android.hardware.SensorEventListener
 import android.hardware.SensorManager
 import android.hardware.camera2.CameraManager
 import android.net.Uri
-import android.provider.MediaStore
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
 import android.util.DisplayMetrics
+import android.util.Range
 import android.view.Display
 import android.view.SurfaceHolder
 import android.view.SurfaceView
 import android.view.WindowManager
 import android.widget.Toast
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
 import androidx.lifecycle.LifecycleOwner
-import androidx.lifecycle.MutableLiveData
-import androidx.lifecycle.Observer
+import com.android.detection.detection.analyze.AnalysisGovernor
 import com.android.detection.detection.analyze.Analyzer
 import com.android.detection.detection.analyze.Analyzer.OnAnalyzeListener
-import java.io.OutputStream
+import com.android.detection.detection.capture.CaptureBurst
+import com.android.detection.detection.capture.CaptureWriter
+import com.android.detection.detection.capture.FrameRingBuffer
+import com.android.detection.detection.util.CameraCapabilityCache
+import com.android.detection.detection.util.StartupTrace
+import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.math.abs
 import kotlin.math.max
 import kotlin.math.min
 
@@ -45,15 +57,42 @@ class BaseCamera1Scan<T>(
     private var mAnalyzer: Analyzer<T?>? = null
 
     /**
-     * 分析结果
+     * 分析结果分发器
      */
-    private var mResultLiveData: MutableLiveData<AnalyzeResult<T?>?>? = null
+    private var mResultDispatcher: ResultDispatcher<T?>? = null
 
     /**
      * 扫描结果回调
      */
     private var mOnScanResultCallback: OnScanResultCallback<T?>? = null
 
+    /**
+     * 分析频率调节器
+     */
+    @Volatile
+    private var mAnalysisGovernor: AnalysisGovernor? = null
+
+    /**
+     * 零延迟拍照的帧缓冲区
+     */
+    @Volatile
+    private var mFrameRingBuffer: FrameRingBuffer<T?>? = null
+
+    /**
+     * 照片写入器
+     */
+    private val captureWriter = CaptureWriter(mContext)
+
+    private val captureWriteListener = object : CaptureWriter.OnCaptureWriteListener {
+        override fun onSuccess(uri: Uri, timings: CaptureWriter.Timings) {
+            // 拍照完成时已提示，照片写入媒体库后无需再处理
+        }
+
+        override fun onFailure(e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
     private var sensorManager: SensorManager? = null
     private var gravitySensor: Sensor? = null
     private var sensorEventListener: SensorEventListener? = null
@@ -65,16 +104,69 @@ class BaseCamera1Scan<T>(
     private var screenWidth = 0
     private var screenHeight = 0
 
+    @Volatile
     private var camera: Camera? = null
     private var holder: SurfaceHolder? = null
     private var callback: SurfaceHolder.Callback? = null
+    @Volatile
     private var isOpen = false
 
     /**
-     * 初始化
+     * 相机线程：在此线程上打开相机，预览帧及拍照回调都投递到此线程，不占用主线程
+     */
+    private val cameraThread = HandlerThread("Camera1").apply { start() }
+    private val cameraHandler = Handler(cameraThread.looper)
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /**
+     * 预览尺寸
+     */
+    private var previewWidth = 0
+    private var previewHeight = 0
+
+    /**
+     * 预览帧转正需要顺时针旋转的角度：由传感器方向及屏幕方向决定
+     */
+    private var previewRotation = 0
+
+    /**
+     * 预览回调缓冲区的大小；相机未打开时为0
+     */
+    private var previewBufferSize = 0
+
+    /**
+     * 已为帧缓冲区分配的预览回调缓冲区数量
+     */
+    private var zslCallbackBuffers = 0
+
+    /**
+     * 正在从预览帧中收集照片的连拍
+     */
+    @Volatile
+    private var previewBurst: CaptureBurst? = null
+
+    /**
+     * 连拍照片的旋转角度，开始连拍时确定
+     */
+    private var burstRotation = 0
+
+    /**
+     * 相机能力缓存：再次启动时跳过遍历支持的预览及拍照尺寸
      */
-    private var currentTime = 0L
+    private val capabilityCache = CameraCapabilityCache(
+        mContext,
+        "camera1:${CameraConfig.TAKE_PICTURE_HEIGHT}x${CameraConfig.TAKE_PICTURE_WIDTH}"
+    )
 
+    /**
+     * 启动耗时：打开相机、尺寸选择、开始预览及第一帧
+     */
+    private val startupTrace = StartupTrace("Camera1")
+
+    /**
+     * 初始化
+     */
     init {
         val defaultDisplay =
             (mContext.getSystemService("window") as WindowManager).defaultDisplay
@@ -91,16 +183,10 @@ class BaseCamera1Scan<T>(
 
     @SuppressLint("ClickableViewAccessibility")
     private fun initData() {
-        mResultLiveData = MutableLiveData<AnalyzeResult<T?>?>()
-        mResultLiveData!!.observe(mLifecycleOwner, Observer { result: AnalyzeResult<T?>? ->
-            val time = System.currentTimeMillis()
-            if ((time - currentTime) > 100) {
-                currentTime = time
-                handleAnalyzeResult(result)
-            } else if (mOnScanResultCallback != null) {
-                mOnScanResultCallback!!.onScanResultFailure()
-            }
-        })
+        // 分发器不会覆盖尚未释放的结果，保证结果持有的预览回调缓冲区都能归还给相机
+        mResultDispatcher = ResultDispatcher(mLifecycleOwner) { result: AnalyzeResult<T?>? ->
+            handleAnalyzeResult(result)
+        }
 
         sensorManager = mContext.getSystemService(Context.SENSOR_SERVICE) as SensorManager
         gravitySensor = sensorManager!!.getDefaultSensor(Sensor.TYPE_GRAVITY)
@@ -122,14 +208,55 @@ class BaseCamera1Scan<T>(
         }
 
         cameraManager = mContext.getSystemService(CAMERA_SERVICE) as CameraManager
+
+        if (Looper.myLooper() == Looper.getMainLooper()) observeLifecycle()
+        else mainHandler.post { observeLifecycle() }
+    }
+
+    /**
+     * 页面销毁时关闭相机并结束相机线程；[release] 只停止相机，之后仍可重新启动
+     */
+    private fun observeLifecycle() {
+        mLifecycleOwner.lifecycle.addObserver(LifecycleEventObserver { _, event ->
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                stopCamera()
+                // 排在关闭相机之后结束
+                cameraThread.quitSafely()
+            }
+        })
+    }
+
+    /**
+     * 在相机线程上执行并等待完成：Surface销毁前需要先停止预览；相机线程已结束时直接在当前线程执行
+     */
+    private fun runOnCameraThreadAndWait(action: () -> Unit) {
+        if (Looper.myLooper() == cameraThread.looper) {
+            action()
+            return
+        }
+        val done = CountDownLatch(1)
+        val posted = cameraHandler.post {
+            try {
+                action()
+            } finally {
+                done.countDown()
+            }
+        }
+        if (!posted) {
+            action()
+            return
+        }
+        try {
+            done.await(CAMERA_CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
     }
 
 
-    private var lastPictureSize: Camera.Size? = null
     fun openCamera() {
         try {
             if (camera != null) {
-                lastPictureSize = null
                 val windowManager =
                     mContext.getSystemService(WINDOW_SERVICE) as WindowManager
                 val display: Display = windowManager.defaultDisplay
@@ -138,38 +265,36 @@ class BaseCamera1Scan<T>(
                 if (recodeRotation == 1) camera?.setDisplayOrientation(0)
                 if (recodeRotation == 2) camera?.setDisplayOrientation(90)
                 if (recodeRotation == 3) camera?.setDisplayOrientation(0)
+                previewRotation = getPreviewRotation(recodeRotation)
 
                 val params = camera?.parameters
                 params?.pictureFormat = PixelFormat.JPEG
 
-                // 获取预览分辨率列表
-                val previewSizes = params!!.supportedPreviewSizes.sortedByDescending { it.width }
-                // 获取拍照分辨率列表
-//                val pictureSizes = params.supportedPictureSizes.sortedByDescending { it.width }
-//                previewSizes.forEach {
-//                    println("这里的预览大小时》》》》   ${it.width}    ${it.height}")
-//                }
-//
-//                pictureSizes.forEach {
-//                    println("这里的paizhao1chi大小时》》》》   ${it.width}    ${it.height}")
-//                }
-
-                // 遍历这些列表以找到你想要的分辨率
-                for (previewSize in previewSizes) {
-                    if ((previewSize.width / previewSize.height.toFloat()) == (4 / 3f)) {
-                        lastPictureSize = previewSize
-                        break
-                    }
+                // 优先使用缓存的尺寸，未缓存时遍历支持的尺寸并写入缓存
+                val discoveryStart = System.nanoTime()
+                var capabilities = capabilityCache.get(CAMERA_ID)
+                val cached = capabilities != null
+                if (capabilities == null) {
+                    capabilities = queryCapabilities(params!!)
+                    capabilities?.let { capabilityCache.put(it) }
                 }
+                startupTrace.record(if (cached) "discovery(cached)" else "discovery", System.nanoTime() - discoveryStart)
 
-                if (lastPictureSize != null) {
-//                    println("这里分辨率尺寸是》》》》    ${lastPictureSize!!.width}    ${lastPictureSize!!.height}")
-                    params.setPreviewSize(lastPictureSize!!.width, lastPictureSize!!.height) //4:3  1920 1440
-                    params.setPictureSize(4096, 3072)
+                if (capabilities != null) {
+                    params!!.setPreviewSize(capabilities.previewWidth, capabilities.previewHeight) //4:3  1920 1440
+                    params.setPictureSize(capabilities.pictureWidth, capabilities.pictureHeight)
                 }
-                camera?.parameters = params
-                camera?.setPreviewCallback(previewCallback)
+                try {
+                    camera?.parameters = params
+                } catch (e: RuntimeException) {
+                    // 缓存的尺寸可能已不适用，下次启动时重新发现
+                    capabilityCache.invalidate()
+                    throw e
+                }
+                addPreviewCallbackBuffers(camera!!)
+                camera?.setPreviewCallbackWithBuffer(previewCallback)
                 camera?.startPreview()
+                startupTrace.mark("previewStarted")
                 isOpen = true
             }
         } catch (e: Exception) {
@@ -177,27 +302,147 @@ class BaseCamera1Scan<T>(
         }
     }
 
+    /**
+     * 遍历支持的尺寸：预览取宽度最大的4:3尺寸，拍照优先使用目标尺寸，不支持时取不超过目标尺寸的最大4:3尺寸
+     *
+     * @return 没有4:3的预览尺寸时返回null，沿用相机默认的尺寸
+     */
+    private fun queryCapabilities(params: Camera.Parameters): CameraCapabilityCache.Capabilities? {
+        val previewSize = params.supportedPreviewSizes
+            .sortedByDescending { it.width }
+            .firstOrNull { isAspectRatio4To3(it) } ?: return null
+        val pictureSizes = params.supportedPictureSizes
+        val pictureSize = pictureSizes.firstOrNull {
+            it.width == CameraConfig.TAKE_PICTURE_HEIGHT && it.height == CameraConfig.TAKE_PICTURE_WIDTH
+        } ?: pictureSizes.filter {
+            isAspectRatio4To3(it) && it.width <= CameraConfig.TAKE_PICTURE_HEIGHT
+        }.maxByOrNull { it.width * it.height }
+        val fpsRanges = params.supportedPreviewFpsRange.map { Range(it[0], it[1]) }
+        return CameraCapabilityCache.Capabilities(
+            CAMERA_ID,
+            Camera.CameraInfo.CAMERA_FACING_BACK,
+            previewSize.width, previewSize.height,
+            previewSize.width, previewSize.height,
+            pictureSize?.width ?: CameraConfig.TAKE_PICTURE_HEIGHT,
+            pictureSize?.height ?: CameraConfig.TAKE_PICTURE_WIDTH,
+            fpsRanges
+        )
+    }
+
+    /**
+     * 后置摄像头预览帧转正需要顺时针旋转的角度
+     *
+     * @param displayRotation 屏幕方向，如：[android.view.Surface.ROTATION_90]
+     */
+    private fun getPreviewRotation(displayRotation: Int): Int {
+        val info = Camera.CameraInfo()
+        Camera.getCameraInfo(CAMERA_ID.toInt(), info)
+        return (info.orientation - displayRotation * 90 + 360) % 360
+    }
+
+    /**
+     * 纵横比是否为4:3；尺寸取整后纵横比不完全相等，按容差比较
+     */
+    private fun isAspectRatio4To3(size: Camera.Size): Boolean {
+        return abs(size.width / size.height.toFloat() - CameraScan.ASPECT_RATIO_4_3) <= CameraConfig.ASPECT_RATIO_TOLERANCE
+    }
+
+    /**
+     * 按当前预览尺寸分配一组预览回调缓冲区并交给相机循环使用
+     */
+    private fun addPreviewCallbackBuffers(camera: Camera) {
+        val params = camera.parameters
+        val previewSize = params.previewSize
+        previewWidth = previewSize.width
+        previewHeight = previewSize.height
+        previewBufferSize = previewSize.width * previewSize.height *
+                ImageFormat.getBitsPerPixel(params.previewFormat) / 8
+        // 未裁剪的帧直接引用预览回调缓冲区，帧缓冲区中的每一帧各占一个
+        zslCallbackBuffers = mFrameRingBuffer?.capacity ?: 0
+        repeat(PREVIEW_BUFFER_COUNT + zslCallbackBuffers) { camera.addCallbackBuffer(ByteArray(previewBufferSize)) }
+    }
+
+    /**
+     * 相机打开后帧缓冲区容量增大时，补足新增容量所需的预览回调缓冲区；容量减小时多出的缓冲区继续循环使用
+     */
+    private fun addZslCallbackBuffers(camera: Camera, capacity: Int) {
+        val extra = capacity - zslCallbackBuffers
+        if (previewBufferSize == 0 || extra <= 0) return
+        try {
+            repeat(extra) { camera.addCallbackBuffer(ByteArray(previewBufferSize)) }
+            zslCallbackBuffers = capacity
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
+    /**
+     * 分析器释放帧数据后，将缓冲区归还给相机；相机已关闭或已重新打开时直接丢弃
+     */
+    private fun returnPreviewCallbackBuffer(owner: Camera, data: ByteArray) {
+        if (owner !== camera) return
+        try {
+            owner.addCallbackBuffer(data)
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
     private val previewCallback: PreviewCallback = object : PreviewCallback {
         override fun onPreviewFrame(data: ByteArray?, camera: Camera?) {
-            // 处理预览数据
-            mAnalyzer!!.analyze(data!!, object : OnAnalyzeListener<T?> {
+            if (data == null || camera == null) return
+            if (!startupTrace.isFinished) startupTrace.finish("firstFrame")
+            previewBurst?.let { captureBurstFrame(it, data) }
+            val analyzer = mAnalyzer
+            if (analyzer == null) {
+                camera.addCallbackBuffer(data)
+                return
+            }
+            // 调节器未放行的帧直接归还给相机，预览不受影响
+            val governor = mAnalysisGovernor
+            if (governor != null && !governor.tryAdmit()) {
+                camera.addCallbackBuffer(data)
+                return
+            }
+            val listener = object : OnAnalyzeListener<T?> {
                 override fun onSuccess(result: AnalyzeResult<T?>) {
-                    mResultLiveData!!.postValue(result)
+                    mFrameRingBuffer?.add(result)
+                    mResultDispatcher!!.dispatch(result)
                 }
 
                 override fun onFailure(e: Exception?) {
-                    mResultLiveData!!.postValue(null)
+                    mResultDispatcher!!.dispatch(null)
                 }
-            })
+            }
+            // 处理预览数据；分析器释放帧数据后缓冲区才会归还给相机
+            analyzer.analyze(
+                data,
+                previewWidth,
+                previewHeight,
+                previewRotation,
+                { returnPreviewCallbackBuffer(camera, data) },
+                governor?.track(listener) ?: listener
+            )
         }
     }
 
+    /**
+     * 将预览帧加入连拍：复制后缓冲区照常用于分析，转正及编码在连拍线程上进行
+     */
+    private fun captureBurstFrame(burst: CaptureBurst, data: ByteArray) {
+        val frame = ByteBuffer.wrap(data.clone())
+        burst.add(CaptureWriter.nv21Content(frame, previewWidth, previewHeight, burstRotation), null)
+        if (!burst.isCollecting) previewBurst = null
+    }
+
     fun closeCamera() {
         try {
             camera?.stopPreview()
-            camera?.setPreviewCallback(null)
+            camera?.setPreviewCallbackWithBuffer(null)
             camera?.release()
             camera = null
+            previewBufferSize = 0
+            zslCallbackBuffers = 0
         } catch (e: Exception) {
             e.printStackTrace()
         }
@@ -215,12 +460,17 @@ class BaseCamera1Scan<T>(
             if (isOpen) return
             callback = object : SurfaceHolder.Callback {
                 override fun surfaceCreated(holder: SurfaceHolder) {
-                    try {
-                        camera = Camera.open(0)
-                        camera?.setPreviewDisplay(holder)
-                        openCamera()
-                    } catch (e: Exception) {
-                        e.printStackTrace()
+                    // 在相机线程上打开，预览回调随之投递到相机线程
+                    cameraHandler.post {
+                        try {
+                            startupTrace.begin()
+                            camera = Camera.open(CAMERA_ID.toInt())
+                            startupTrace.mark("opened")
+                            camera?.setPreviewDisplay(holder)
+                            openCamera()
+                        } catch (e: Exception) {
+                            e.printStackTrace()
+                        }
                     }
                 }
 
@@ -233,7 +483,7 @@ class BaseCamera1Scan<T>(
                 }
 
                 override fun surfaceDestroyed(holder: SurfaceHolder) {
-                    closeCamera()
+                    runOnCameraThreadAndWait { closeCamera() }
                 }
             }
             holder = surfaceView.holder
@@ -245,39 +495,51 @@ class BaseCamera1Scan<T>(
 
 
     override fun takePhoto() {
+        val rotationCompensation = getRotationCompensation()
+        val flash = flashFlag
+        cameraHandler.post {
+            try {
+                val params = camera?.parameters
+                if (flash) params?.flashMode = Camera.Parameters.FLASH_MODE_ON
+                else params?.flashMode = Camera.Parameters.FLASH_MODE_OFF
+                params?.setRotation(rotationCompensation)
+                camera?.parameters = params
+                camera?.takePicture(null, null, object : Camera.PictureCallback{
+                    override fun onPictureTaken(p0: ByteArray?, p1: Camera?) {
+                        // 照片在后台写入，预览立即恢复
+                        if (p0 != null) {
+                            captureWriter.write(ByteBuffer.wrap(p0), null, captureWriteListener)
+                            mainHandler.post { Toast.makeText(mContext, "拍照成功！", Toast.LENGTH_SHORT).show() }
+                        }
+                        camera?.startPreview()
+                    }
+                })
+            } catch (e: Exception) {
+                e.printStackTrace()
+            }
+        }
+    }
+
+    /**
+     * 连拍：从接下来的连续预览帧中取照片，拍照之间无需重新开始预览；照片为预览分辨率，不使用闪光灯
+     */
+    override fun takeBurst(count: Int, listener: CaptureBurst.OnBurstListener?): Boolean {
+        if (camera == null || previewBurst?.isCollecting == true) return false
+        burstRotation = getRotationCompensation()
+        previewBurst = captureWriter.beginBurst(count, listener)
+        return true
+    }
+
+    /**
+     * 按重力方向计算照片的旋转角度
+     */
+    private fun getRotationCompensation(): Int {
         var rotationCompensation = 0
         if (gravityValue == 0) rotationCompensation = 90
         else if (gravityValue == 1) rotationCompensation = 180
         else if (gravityValue == 2) rotationCompensation = 270
         else if (gravityValue == 3) rotationCompensation = 0
-
-        val params = camera?.parameters
-        if (flashFlag) params?.flashMode = Camera.Parameters.FLASH_MODE_ON
-        else params?.flashMode = Camera.Parameters.FLASH_MODE_OFF
-        params?.setRotation(rotationCompensation)
-        camera?.parameters = params
-        camera?.takePicture(null, null, object : Camera.PictureCallback{
-            override fun onPictureTaken(p0: ByteArray?, p1: Camera?) {
-                try {
-                    val contentValues = ContentValues().apply {
-                        put(MediaStore.MediaColumns.DISPLAY_NAME, "Photo_${System.currentTimeMillis()}")
-                        put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg")
-                        put(MediaStore.MediaColumns.RELATIVE_PATH, "Pictures/Camera Detection")
-                    }
-                    val uri: Uri? = mContext.contentResolver.insert(
-                        MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues
-                    )
-                    val outputStream1: OutputStream? =
-                        uri?.let { mContext.contentResolver.openOutputStream(it) }
-                    outputStream1?.write(p0)
-                    outputStream1?.close()
-                    Toast.makeText(mContext, "拍照成功！", Toast.LENGTH_SHORT).show()
-                } catch (e: Exception) {
-                    e.printStackTrace()
-                }
-                camera!!.startPreview()
-            }
-        })
+        return rotationCompensation
     }
 
     /**
@@ -294,11 +556,10 @@ class BaseCamera1Scan<T>(
 
     override fun stopCamera() {
         sensorManager!!.unregisterListener(sensorEventListener)
-        try {
-            closeCamera()
-        } catch (e: Exception) {
-            e.printStackTrace()
-        }
+        mFrameRingBuffer?.clear()
+        previewBurst?.finish()
+        previewBurst = null
+        cameraHandler.post { closeCamera() }
     }
 
     override fun setAnalyzeImage(analyze: Boolean): CameraScan<T> {
@@ -323,8 +584,58 @@ class BaseCamera1Scan<T>(
         return this
     }
 
+    override fun setAnalysisGovernor(governor: AnalysisGovernor?): CameraScan<T> {
+        mAnalysisGovernor = governor
+        return this
+    }
+
+    override fun setResultDispatchPolicy(
+        policy: ResultDispatcher.Policy,
+        intervalMillis: Long
+    ): CameraScan<T> {
+        mResultDispatcher!!.setPolicy(policy, intervalMillis)
+        return this
+    }
+
+    override fun getResultDispatcher(): ResultDispatcher<T?> {
+        return mResultDispatcher!!
+    }
+
+    override fun setZslBufferSize(size: Int): CameraScan<T> {
+        mFrameRingBuffer?.clear()
+        mFrameRingBuffer = if (size > 0) FrameRingBuffer(size) else null
+        cameraHandler.post { camera?.let { addZslCallbackBuffers(it, size) } }
+        return this
+    }
+
+    override fun captureFromBuffer(
+        sequence: Long,
+        listener: CaptureWriter.OnCaptureWriteListener?
+    ): Boolean {
+        val frame = mFrameRingBuffer?.acquire(sequence) ?: return false
+        captureWriter.writeFrame(frame, listener)
+        return true
+    }
+
 
     override fun release() {
         stopCamera()
     }
+
+    companion object {
+        /**
+         * 预览回调缓冲区数量：相机填充、检测中、等待检测及分析结果回调中各占一个
+         */
+        private const val PREVIEW_BUFFER_COUNT = 4
+
+        /**
+         * 使用的相机ID：后置摄像头
+         */
+        private const val CAMERA_ID = "0"
+
+        /**
+         * Surface销毁时等待相机线程关闭相机的最长时间
+         */
+        private const val CAMERA_CLOSE_TIMEOUT_MILLIS = 1000L
+    }
 }
@@ -2,7 +2,6 @@ package com.android.detection.detection
 
 import android.Manifest
 import android.annotation.SuppressLint
-import android.content.ContentValues
 import android.content.Context
 import android.content.Context.CAMERA_SERVICE
 import android.graphics.ImageFormat
@@ -16,57 +15,98 @@ import android.hardware.camera2.CameraCaptureSession.CaptureCallback
 import android.hardware.camera2.CameraCharacteristics
 import android.hardware.camera2.CameraDevice
 import android.hardware.camera2.CameraManager
+import android.hardware.camera2.CaptureFailure
 import android.hardware.camera2.CaptureRequest
 import android.hardware.camera2.TotalCaptureResult
+import android.media.Image
 import android.media.ImageReader
 import android.net.Uri
 import android.os.Handler
 import android.os.HandlerThread
-import android.provider.MediaStore
+import android.os.Looper
 import android.util.DisplayMetrics
 import android.util.Range
+import android.util.Size
 import android.view.Surface
 import android.view.TextureView
 import android.view.View
 import android.view.WindowManager
 import android.widget.Toast
 import androidx.annotation.RequiresPermission
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
 import androidx.lifecycle.LifecycleOwner
-import androidx.lifecycle.MutableLiveData
-import androidx.lifecycle.Observer
 import com.android.detection.detection.CameraConfig.CAMERA_HEIGHT
 import com.android.detection.detection.CameraConfig.CAMERA_WIDTH
 import com.android.detection.detection.CameraConfig.TAKE_PICTURE_HEIGHT
 import com.android.detection.detection.CameraConfig.TAKE_PICTURE_WIDTH
+import com.android.detection.detection.analyze.AnalysisGovernor
 import com.android.detection.detection.analyze.Analyzer
 import com.android.detection.detection.analyze.Analyzer.OnAnalyzeListener
-import java.io.OutputStream
+import com.android.detection.detection.capture.CaptureBurst
+import com.android.detection.detection.capture.CaptureWriter
+import com.android.detection.detection.capture.FrameRingBuffer
+import com.android.detection.detection.util.CameraCapabilityCache
+import com.android.detection.detection.util.ImageUtils
+import com.android.detection.detection.util.LatestFrameSlot
+import com.android.detection.detection.util.StartupTrace
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.math.abs
 import kotlin.math.max
 import kotlin.math.min
 
 /**
  * 相机扫描基类；[BaseCamera2Scan] 为 [CameraScan] 的默认实现
+ *
+ * 分析用的 [ImageReader] 中的图像在分析器转换（复制）完成后立即关闭，检测期间不占用相机的缓冲区。
+ * ImageReader线程只负责取出最新的图像，通过 [LatestFrameSlot] 交给分析线程转换，分析线程繁忙时只保留最新的一帧。
+ *
+ * 相机的打开、会话配置及关闭在相机控制线程上串行执行，拍照结果回调及照片写入分别在独立的后台线程上执行，均不占用主线程。
+ *
+ * 选定的相机ID、输出尺寸及帧率范围缓存在 [CameraCapabilityCache] 中，再次启动时跳过相机发现，启动各阶段的耗时由 [StartupTrace] 输出。
  */
-class BaseCamera2Scan<T>(
+class BaseCamera2Scan<T> @JvmOverloads constructor(
     private val mContext: Context,
     private val mLifecycleOwner: LifecycleOwner,
-    private val textureView: TextureView
+    private val textureView: TextureView,
+    /**
+     * 分析用的 [ImageReader] 的缓冲区数量
+     */
+    private val analyzeImageBuffers: Int = CameraConfig.ANALYZE_IMAGE_BUFFERS
 ) : CameraScan<T>() {
     /**
      * 分析器
      */
+    @Volatile
     private var mAnalyzer: Analyzer<T?>? = null
 
     /**
-     * 分析结果
+     * 分析结果分发器
      */
-    private var mResultLiveData: MutableLiveData<AnalyzeResult<T?>?>? = null
+    private var mResultDispatcher: ResultDispatcher<T?>? = null
 
     /**
      * 扫描结果回调
      */
     private var mOnScanResultCallback: OnScanResultCallback<T?>? = null
 
+    /**
+     * 分析频率调节器
+     */
+    @Volatile
+    private var mAnalysisGovernor: AnalysisGovernor? = null
+
+    /**
+     * 零延迟拍照的帧缓冲区
+     */
+    @Volatile
+    private var mFrameRingBuffer: FrameRingBuffer<T?>? = null
+
     private var sensorManager: SensorManager? = null
     private var gravitySensor: Sensor? = null
     private var sensorEventListener: SensorEventListener? = null
@@ -85,22 +125,137 @@ class BaseCamera2Scan<T>(
 
     private var imageReader: ImageReader? = null
     private var imageReaderPic: ImageReader? = null
+    @Volatile
     private var cameraDevice: CameraDevice? = null
     private var previewBuilder: CaptureRequest.Builder? = null
+    @Volatile
     private var cameraCaptureSession: CameraCaptureSession? = null
     private var captureCallback: CaptureCallback? = null
     private var handlerThread: HandlerThread? = null
     private var handler: Handler? = null
+
+    /**
+     * 相机控制线程：打开相机、配置会话、关闭相机及设备状态回调
+     */
+    private val cameraThread = startHandlerThread("Camera2Control")
+    private val cameraHandler = Handler(cameraThread.looper)
+
+    /**
+     * 拍照结果回调线程
+     */
+    private val captureThread = startHandlerThread("Camera2Capture")
+    private val captureHandler = Handler(captureThread.looper)
+
+    /**
+     * 照片读取线程：从ImageReader中取出JPEG图像交给照片写入器
+     */
+    private val stillThread = startHandlerThread("Camera2Still")
+    private val stillHandler = Handler(stillThread.looper)
+
+    /**
+     * 照片写入器
+     */
+    private val captureWriter = CaptureWriter(mContext)
+
+    private val captureWriteListener = object : CaptureWriter.OnCaptureWriteListener {
+        override fun onSuccess(uri: Uri, timings: CaptureWriter.Timings) {
+            // 拍照完成时已提示，照片写入媒体库后无需再处理
+        }
+
+        override fun onFailure(e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /**
+     * 正在拍摄的连拍
+     */
+    @Volatile
+    private var activeBurst: CaptureBurst? = null
+
+    /**
+     * 已开始曝光的连拍照片：按曝光时间戳（与图像的时间戳一致）找到图像所属的连拍
+     */
+    private val burstShots = ConcurrentHashMap<Long, CaptureBurst>()
+
+    /**
+     * 创建连拍的拍照回调：回调只处理所属的连拍，不受之后开始的连拍影响
+     */
+    private fun createBurstCaptureCallback(burst: CaptureBurst) = object : CaptureCallback() {
+        override fun onCaptureStarted(
+            session: CameraCaptureSession,
+            request: CaptureRequest,
+            timestamp: Long,
+            frameNumber: Long
+        ) {
+            burstShots[timestamp] = burst
+        }
+
+        override fun onCaptureFailed(
+            session: CameraCaptureSession,
+            request: CaptureRequest,
+            failure: CaptureFailure
+        ) {
+            if (!failure.wasImageCaptured()) burst.skip(IOException("Burst capture failed: ${failure.reason}"))
+        }
+
+        override fun onCaptureSequenceCompleted(
+            session: CameraCaptureSession,
+            sequenceId: Int,
+            frameNumber: Long
+        ) {
+            // 照片的编码晚于拍摄完成，超时仍未到达的照片按失败处理
+            stillHandler.postDelayed({ burst.finish() }, CameraConfig.BURST_IMAGE_TIMEOUT_MILLIS)
+        }
+
+        override fun onCaptureSequenceAborted(session: CameraCaptureSession, sequenceId: Int) {
+            burst.finish()
+        }
+    }
+
+    /**
+     * 分析线程：转换图像并提交检测
+     */
+    private val analyzeExecutor: ExecutorService = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "Camera2Analyze").apply { isDaemon = true }
+    }
+
+    /**
+     * ImageReader线程与分析线程之间的最新帧交接
+     */
+    private val frameSlot = LatestFrameSlot<Image>(analyzeExecutor, { image -> analyzeImage(image) }, Image::close)
     private var surfaceTextureListener: TextureView.SurfaceTextureListener? = null
+    /**
+     * 是否已请求打开相机（含正在打开中）
+     */
+    @Volatile
     private var cameraOpened = false
     private var previewWidth = 0
     private var previewHeight = 0
 
     /**
-     * 初始化
+     * 相机能力缓存：再次启动时跳过查询相机特性及遍历输出尺寸；命名空间包含目标尺寸，目标尺寸变化时重新发现
      */
-    private var currentTime = 0L
+    private val capabilityCache = CameraCapabilityCache(
+        mContext,
+        "camera2:${CAMERA_HEIGHT}x${CAMERA_WIDTH}:${TAKE_PICTURE_HEIGHT}x${TAKE_PICTURE_WIDTH}"
+    )
+    @Volatile
+    private var capabilities: CameraCapabilityCache.Capabilities? = null
 
+    /**
+     * 启动耗时：相机发现、打开、会话配置及第一帧
+     */
+    private val startupTrace = StartupTrace("Camera2")
+    private var discoveryNanos = 0L
+    private var discoveryCached = false
+    private var discoveryRecorded = false
+
+    /**
+     * 初始化
+     */
     init {
         val defaultDisplay =
             (mContext.getSystemService("window") as WindowManager).defaultDisplay
@@ -117,16 +272,11 @@ class BaseCamera2Scan<T>(
 
     @SuppressLint("ClickableViewAccessibility")
     private fun initData() {
-        mResultLiveData = MutableLiveData<AnalyzeResult<T?>?>()
-        mResultLiveData!!.observe(mLifecycleOwner, Observer { result: AnalyzeResult<T?>? ->
-            val time = System.currentTimeMillis()
-            if ((time - currentTime) > 100) {
-                currentTime = time
-                handleAnalyzeResult(result)
-            } else if (mOnScanResultCallback != null) {
-                mOnScanResultCallback!!.onScanResultFailure()
-            }
-        })
+        mResultDispatcher = ResultDispatcher(mLifecycleOwner) { result: AnalyzeResult<T?>? ->
+            handleAnalyzeResult(result)
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) observeLifecycle()
+        else mainHandler.post { observeLifecycle() }
 
         sensorManager = mContext.getSystemService(Context.SENSOR_SERVICE) as SensorManager
         gravitySensor = sensorManager!!.getDefaultSensor(Sensor.TYPE_GRAVITY)
@@ -150,64 +300,60 @@ class BaseCamera2Scan<T>(
         cameraManager = mContext.getSystemService(CAMERA_SERVICE) as CameraManager
         textureView.setLayerType(View.LAYER_TYPE_HARDWARE, null)
 
-        getCameraInfo()
+        loadCapabilities()
         chooseBestPreViewSize()
 
         handlerThread = HandlerThread("ImageReaderThread")
         handlerThread!!.start()
         handler = Handler(handlerThread!!.looper)
+        // 新的ImageReader重新检测UV平面布局
+        ImageUtils.resetPlaneLayout()
         imageReader = ImageReader.newInstance(
-            CAMERA_HEIGHT,
-            CAMERA_WIDTH,
+            capabilities?.analysisWidth ?: CAMERA_HEIGHT,
+            capabilities?.analysisHeight ?: CAMERA_WIDTH,
             ImageFormat.YUV_420_888,
-            2 // 缓冲区数量
+            analyzeImageBuffers // 缓冲区数量
         )
-        var nextImage = false
         imageReader!!.setOnImageAvailableListener({ reader ->
-            if (nextImage) return@setOnImageAvailableListener
-            nextImage = true
-            val image = reader.acquireLatestImage()
-            mAnalyzer!!.analyze(image, object : OnAnalyzeListener<T?> {
-                override fun onSuccess(result: AnalyzeResult<T?>) {
-                    mResultLiveData!!.postValue(result)
-                    nextImage = false
-                    image.close()
-                }
-
-                override fun onFailure(e: Exception?) {
-                    mResultLiveData!!.postValue(null)
-                    nextImage = false
-                    image.close()
-                }
-            })
+            // 每次回调都取出图像，避免图像堆积在ImageReader中
+            val image = reader.acquireLatestImage() ?: return@setOnImageAvailableListener
+            if (!startupTrace.isFinished) startupTrace.finish("firstFrame")
+            // 调节器未放行的帧直接关闭，预览不受影响
+            val governor = mAnalysisGovernor
+            if (mAnalyzer == null || (governor != null && !governor.tryAdmit())) {
+                image.close()
+                return@setOnImageAvailableListener
+            }
+            frameSlot.offer(image)
         }, handler)
 
         imageReaderPic = ImageReader.newInstance(
-            TAKE_PICTURE_HEIGHT,
-            TAKE_PICTURE_WIDTH,
+            capabilities?.pictureWidth ?: TAKE_PICTURE_HEIGHT,
+            capabilities?.pictureHeight ?: TAKE_PICTURE_WIDTH,
             ImageFormat.JPEG,
-            2 // 缓冲区数量
+            CameraConfig.STILL_IMAGE_BUFFERS // 缓冲区数量
         )
         imageReaderPic!!.setOnImageAvailableListener({ reader ->
-            val image = reader.acquireLatestImage()
-            val buffer = image.planes[0].buffer
-            val bytes = ByteArray(buffer.remaining())
-            buffer.get(bytes)
-            val contentValues = ContentValues().apply {
-                put(MediaStore.MediaColumns.DISPLAY_NAME, "Photo_${System.currentTimeMillis()}")
-                put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg")
-                put(MediaStore.MediaColumns.RELATIVE_PATH, "Pictures/Camera Detection")
+            val image = try {
+                reader.acquireNextImage()
+            } catch (e: IllegalStateException) {
+                // 等待写入的照片已占满缓冲区，该照片无法保存
+                captureWriteListener.onFailure(e)
+                null
+            } ?: return@setOnImageAvailableListener
+            val burst = burstShots.remove(image.timestamp)
+            if (burst != null) {
+                // 连拍的照片复制后立即关闭图像，连拍张数不受缓冲区数量的限制
+                val jpeg = image.planes[0].buffer
+                val copy = ByteBuffer.allocateDirect(jpeg.remaining())
+                copy.put(jpeg).flip()
+                image.close()
+                burst.add(copy, null)
+                return@setOnImageAvailableListener
             }
-
-            val uri: Uri? = mContext.contentResolver.insert(
-                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues
-            )
-            val outputStream1: OutputStream? =
-                uri?.let { mContext.contentResolver.openOutputStream(it) }
-            outputStream1?.write(bytes)
-            outputStream1?.close()
-            image.close()
-        }, null)
+            // 直接从JPEG平面的缓冲区写入，写入结束后再关闭图像
+            captureWriter.write(image.planes[0].buffer, { image.close() }, captureWriteListener)
+        }, stillHandler)
 
         captureCallback = object : CaptureCallback() {
             override fun onCaptureCompleted(
@@ -215,7 +361,7 @@ class BaseCamera2Scan<T>(
                 request: CaptureRequest,
                 result: TotalCaptureResult
             ) {
-                Toast.makeText(mContext, "拍照成功", Toast.LENGTH_SHORT).show()
+                mainHandler.post { Toast.makeText(mContext, "拍照成功", Toast.LENGTH_SHORT).show() }
             }
 
         }
@@ -274,18 +420,71 @@ class BaseCamera2Scan<T>(
         }
     }
 
+    /**
+     * 读取相机能力：优先使用缓存，未缓存时查询相机特性并写入缓存
+     */
+    private fun loadCapabilities() {
+        val start = System.nanoTime()
+        var caps = capabilityCache.selectedCameraId?.let { capabilityCache.get(it) }
+        discoveryCached = caps != null
+        if (caps == null && getCameraInfo()) {
+            caps = queryCapabilities(currentCameraId)
+            caps?.let { capabilityCache.put(it) }
+        }
+        if (caps != null) currentCameraId = caps.cameraId
+        capabilities = caps
+        discoveryNanos = System.nanoTime() - start
+    }
+
+    /**
+     * 查询相机特性：选择预览、分析及拍照的输出尺寸，并读取支持的帧率范围
+     */
+    private fun queryCapabilities(cameraId: String): CameraCapabilityCache.Capabilities? {
+        return try {
+            val characteristics = cameraManager!!.getCameraCharacteristics(cameraId)
+            val map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP)
+                ?: return null
+            val preview = chooseSize(map.getOutputSizes(SurfaceTexture::class.java), CAMERA_HEIGHT, CAMERA_WIDTH)
+            val analysis = chooseSize(map.getOutputSizes(ImageFormat.YUV_420_888), CAMERA_HEIGHT, CAMERA_WIDTH)
+            val picture = chooseSize(map.getOutputSizes(ImageFormat.JPEG), TAKE_PICTURE_HEIGHT, TAKE_PICTURE_WIDTH)
+            val fpsRanges = characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES)
+                ?.toList() ?: emptyList()
+            CameraCapabilityCache.Capabilities(
+                cameraId,
+                characteristics.get(CameraCharacteristics.LENS_FACING) ?: -1,
+                preview.width, preview.height,
+                analysis.width, analysis.height,
+                picture.width, picture.height,
+                fpsRanges
+            )
+        } catch (e: Exception) {
+            e.printStackTrace()
+            null
+        }
+    }
+
+    /**
+     * 选择输出尺寸：支持目标尺寸时直接使用，否则取不超过目标尺寸、纵横比相同的最大尺寸；都没有时仍使用目标尺寸
+     */
+    private fun chooseSize(sizes: Array<Size>?, width: Int, height: Int): Size {
+        if (sizes.isNullOrEmpty()) return Size(width, height)
+        sizes.firstOrNull { it.width == width && it.height == height }?.let { return it }
+        val ratio = width / height.toFloat()
+        return sizes.filter {
+            it.width <= width && it.height <= height &&
+                    abs(it.width / it.height.toFloat() - ratio) <= CameraConfig.ASPECT_RATIO_TOLERANCE
+        }.maxByOrNull { it.width * it.height } ?: Size(width, height)
+    }
+
+    /**
+     * 选择预览帧率范围：上限最高的范围中取下限最高的，保证预览流畅
+     */
+    private fun chooseFpsRange(): Range<Int>? {
+        return capabilities?.highestFpsRange
+    }
+
     private fun chooseBestPreViewSize() {
         try {
-            if (cameraManager == null) return
-            //获取摄像头属性描述
-            val cameraCharacteristics =
-                cameraManager!!.getCameraCharacteristics(currentCameraId)
-            //获取摄像头支持的配置属性
-            val map =
-                cameraCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP)
-
-            val list = map!!.getOutputSizes(SurfaceTexture::class.java)
-            list.forEach { println("这里的帧率是？    ${it.height}   ${it.width}") }
             val layoutParams = textureView.layoutParams
             layoutParams.width = screenHeight
             layoutParams.height = (screenHeight * 1.333333).toInt()
@@ -300,25 +499,38 @@ class BaseCamera2Scan<T>(
             if (cameraManager == null) return
             if (cameraOpened) return
             if (textureView.isAvailable) {
+                cameraOpened = true
+                startupTrace.begin()
+                if (!discoveryRecorded) {
+                    discoveryRecorded = true
+                    startupTrace.record(if (discoveryCached) "discovery(cached)" else "discovery", discoveryNanos)
+                }
                 cameraManager!!.openCamera(
                     currentCameraId,
                     object : CameraDevice.StateCallback() {
                         override fun onOpened(camera: CameraDevice) {
-                            cameraOpened = true
+                            // 打开期间已停止相机
+                            if (!cameraOpened) {
+                                camera.close()
+                                return
+                            }
                             cameraDevice = camera
+                            startupTrace.mark("opened")
                             startPreview()
                         }
 
                         override fun onDisconnected(camera: CameraDevice) {
                             cameraOpened = false
-                            stopCamera()
+                            closeCamera()
+                            camera.close()
                         }
 
                         override fun onError(camera: CameraDevice, error: Int) {
                             cameraOpened = false
-                            stopCamera()
+                            closeCamera()
+                            camera.close()
                         }
-                    }, null
+                    }, cameraHandler
                 )
             } else textureView.surfaceTextureListener = surfaceTextureListener
             sensorManager!!.registerListener(
@@ -327,20 +539,29 @@ class BaseCamera2Scan<T>(
                 SensorManager.SENSOR_DELAY_NORMAL
             )
         } catch (e: Exception) {
+            cameraOpened = false
             e.printStackTrace()
         }
     }
 
 
+    /**
+     * 配置会话并开始预览；在相机控制线程上执行
+     */
     private fun startPreview() {
         try {
             val surfaceTexture = textureView.surfaceTexture
-            surfaceTexture!!.setDefaultBufferSize(previewWidth, previewHeight)
+            // 使用相机支持的预览尺寸，未能获取相机能力时按视图尺寸
+            val caps = capabilities
+            if (caps != null) surfaceTexture!!.setDefaultBufferSize(caps.previewWidth, caps.previewHeight)
+            else surfaceTexture!!.setDefaultBufferSize(previewWidth, previewHeight)
             val surface = Surface(surfaceTexture)
             previewBuilder = cameraDevice!!.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW)
             //设置预览输出的界面
-            val fpsRange = Range(1, 7)
-            previewBuilder?.set<Range<Int>>(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange)
+            // 预览按设备支持的最高帧率运行，分析频率由分析频率调节器控制
+            chooseFpsRange()?.let {
+                previewBuilder?.set<Range<Int>>(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, it)
+            }
             previewBuilder!!.addTarget(surface)
             previewBuilder!!.addTarget(imageReader!!.surface)
             cameraDevice!!.createCaptureSession(
@@ -348,12 +569,13 @@ class BaseCamera2Scan<T>(
                 object : CameraCaptureSession.StateCallback() {
                     override fun onConfigured(session: CameraCaptureSession) {
                         cameraCaptureSession = session
+                        startupTrace.mark("configured")
                         previewBuilder?.setTag("TAG_PREVIEW")
                         try {
                             cameraCaptureSession?.setRepeatingRequest(
                                 previewBuilder!!.build(),
                                 null,
-                                null
+                                captureHandler
                             )
                         } catch (e: Exception) {
                             e.printStackTrace()
@@ -361,11 +583,13 @@ class BaseCamera2Scan<T>(
                     }
 
                     override fun onConfigureFailed(session: CameraCaptureSession) {
+                        // 缓存的尺寸可能已不适用，下次启动时重新发现
+                        capabilityCache.invalidate()
                         session.close()
                         stopCamera()
                     }
                 },
-                null
+                cameraHandler
             )
         } catch (e: Exception) {
             e.printStackTrace()
@@ -374,20 +598,81 @@ class BaseCamera2Scan<T>(
     }
 
     override fun takePhoto() {
+        val stillCaptureRequestBuilder = createStillCaptureRequest(cameraDevice!!)
+        cameraCaptureSession!!.capture(stillCaptureRequestBuilder.build(), captureCallback, captureHandler)
+    }
+
+    /**
+     * 连拍：通过 [CameraCaptureSession.captureBurst] 一次提交全部拍照请求
+     */
+    override fun takeBurst(count: Int, listener: CaptureBurst.OnBurstListener?): Boolean {
+        val device = cameraDevice ?: return false
+        val session = cameraCaptureSession ?: return false
+        if (activeBurst?.isCollecting == true) return false
+        val burst = captureWriter.beginBurst(count, listener)
+        val request = createStillCaptureRequest(device).build()
+        burstShots.clear()
+        activeBurst = burst
+        try {
+            session.captureBurst(List(count) { request }, createBurstCaptureCallback(burst), captureHandler)
+        } catch (e: Exception) {
+            e.printStackTrace()
+            activeBurst = null
+            burst.finish()
+            return false
+        }
+        return true
+    }
+
+    /**
+     * 创建拍照请求：按重力方向设置照片的旋转角度
+     */
+    private fun createStillCaptureRequest(device: CameraDevice): CaptureRequest.Builder {
         var rotationCompensation = 0
         if (gravityValue == 0) rotationCompensation = 90
         else if (gravityValue == 1) rotationCompensation = 180
         else if (gravityValue == 2) rotationCompensation = 270
         else if (gravityValue == 3) rotationCompensation = 0
         val stillCaptureRequestBuilder =
-            cameraDevice!!.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE)
+            device.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE)
         if (flashFlag) stillCaptureRequestBuilder.set(
             CaptureRequest.CONTROL_AE_MODE,
             CaptureRequest.CONTROL_AE_MODE_ON_ALWAYS_FLASH
         )
         stillCaptureRequestBuilder.set<Int?>(CaptureRequest.JPEG_ORIENTATION, rotationCompensation)
         stillCaptureRequestBuilder.addTarget(imageReaderPic!!.surface)
-        cameraCaptureSession!!.capture(stillCaptureRequestBuilder.build(), captureCallback, null)
+        return stillCaptureRequestBuilder
+    }
+
+    /**
+     * 在分析线程上分析图像
+     *
+     * 分析器在返回前已将图像转换为NV21，检测在其后异步进行，此时即可将缓冲区还给相机；
+     * 检测未结束时到达的帧由分析器只保留最新的一帧
+     */
+    private fun analyzeImage(image: Image) {
+        val analyzer = mAnalyzer
+        if (analyzer == null) {
+            image.close()
+            return
+        }
+        val listener = object : OnAnalyzeListener<T?> {
+            override fun onSuccess(result: AnalyzeResult<T?>) {
+                mFrameRingBuffer?.add(result)
+                mResultDispatcher!!.dispatch(result)
+            }
+
+            override fun onFailure(e: Exception?) {
+                mResultDispatcher!!.dispatch(null)
+            }
+        }
+        try {
+            analyzer.analyze(image, mAnalysisGovernor?.track(listener) ?: listener)
+        } catch (e: Exception) {
+            e.printStackTrace()
+        } finally {
+            image.close()
+        }
     }
 
     /**
@@ -404,19 +689,39 @@ class BaseCamera2Scan<T>(
 
     override fun stopCamera() {
         sensorManager!!.unregisterListener(sensorEventListener)
+        frameSlot.clear()
+        mFrameRingBuffer?.clear()
+        activeBurst?.finish()
+        activeBurst = null
+        burstShots.clear()
+        cameraOpened = false
+        // 与打开相机、配置会话在同一线程上串行执行
+        cameraHandler.post { closeCamera() }
+    }
+
+    /**
+     * 关闭会话及相机；在相机控制线程上执行
+     */
+    private fun closeCamera() {
         try {
-            cameraOpened = false
+            cameraCaptureSession?.close()
+            cameraCaptureSession = null
             //关闭相机
             if (cameraDevice != null) {
                 cameraDevice?.close()
                 cameraDevice = null
             }
-            cameraCaptureSession?.close()
         } catch (e: Exception) {
             e.printStackTrace()
         }
     }
 
+    private fun startHandlerThread(name: String): HandlerThread {
+        val thread = HandlerThread(name)
+        thread.start()
+        return thread
+    }
+
     override fun setAnalyzeImage(analyze: Boolean): CameraScan<T> {
         return this
     }
@@ -439,8 +744,81 @@ class BaseCamera2Scan<T>(
         return this
     }
 
+    override fun setAnalysisGovernor(governor: AnalysisGovernor?): CameraScan<T> {
+        mAnalysisGovernor = governor
+        return this
+    }
+
+    override fun setResultDispatchPolicy(
+        policy: ResultDispatcher.Policy,
+        intervalMillis: Long
+    ): CameraScan<T> {
+        mResultDispatcher!!.setPolicy(policy, intervalMillis)
+        return this
+    }
+
+    override fun getResultDispatcher(): ResultDispatcher<T?> {
+        return mResultDispatcher!!
+    }
+
+    override fun setZslBufferSize(size: Int): CameraScan<T> {
+        mFrameRingBuffer?.clear()
+        mFrameRingBuffer = if (size > 0) FrameRingBuffer(size) else null
+        return this
+    }
+
+    override fun captureFromBuffer(
+        sequence: Long,
+        listener: CaptureWriter.OnCaptureWriteListener?
+    ): Boolean {
+        val frame = mFrameRingBuffer?.acquire(sequence) ?: return false
+        captureWriter.writeFrame(frame, listener)
+        return true
+    }
+
 
     override fun release() {
         stopCamera()
     }
+
+    /**
+     * 页面销毁时关闭相机并结束各个线程；暂停时只停止相机，恢复后可重新打开
+     */
+    private fun observeLifecycle() {
+        mLifecycleOwner.lifecycle.addObserver(LifecycleEventObserver { _, event ->
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                stopCamera()
+                // 在相机控制线程上排在关闭会话及相机之后执行
+                cameraHandler.post { releaseThreads() }
+            }
+        })
+    }
+
+    /**
+     * 等待分析线程处理完正在转换的图像后关闭ImageReader，再结束各个线程；在相机控制线程上执行
+     */
+    private fun releaseThreads() {
+        analyzeExecutor.shutdown()
+        try {
+            analyzeExecutor.awaitTermination(ANALYZE_TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+        imageReader?.close()
+        imageReader = null
+        imageReaderPic?.close()
+        imageReaderPic = null
+        handlerThread?.quitSafely()
+        handlerThread = null
+        captureThread.quitSafely()
+        stillThread.quitSafely()
+        cameraThread.quitSafely()
+    }
+
+    companion object {
+        /**
+         * 页面销毁时等待分析线程处理完正在转换的图像的最长时间
+         */
+        private const val ANALYZE_TERMINATION_TIMEOUT_MILLIS = 500L
+    }
 }
@@ -20,11 +20,13 @@ import android.widget.Toast;
 
 import androidx.activity.ComponentActivity;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.core.ResolutionInfo;
 import androidx.camera.lifecycle.ProcessCameraProvider;
@@ -34,9 +36,15 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MutableLiveData;
 
+import com.android.detection.detection.analyze.AnalysisGovernor;
 import com.android.detection.detection.analyze.Analyzer;
+import com.android.detection.detection.capture.CaptureBurst;
+import com.android.detection.detection.capture.CaptureWriter;
+import com.android.detection.detection.capture.FrameRingBuffer;
+import com.android.detection.detection.util.ImageUtils;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
@@ -77,9 +85,9 @@ public class BaseCameraScan<T> extends CameraScan<T> {
      */
     private volatile boolean isAnalyzeResult;
     /**
-     * 分析结果
+     * 分析结果分发器
      */
-    private MutableLiveData<AnalyzeResult<T>> mResultLiveData;
+    private ResultDispatcher<T> mResultDispatcher;
 
     private MutableLiveData<Integer> mRotationLiveData;
     /**
@@ -90,6 +98,25 @@ public class BaseCameraScan<T> extends CameraScan<T> {
      * 分析监听器
      */
     private Analyzer.OnAnalyzeListener<T> mOnAnalyzeListener;
+    /**
+     * 分析频率调节器
+     */
+    @Nullable
+    private volatile AnalysisGovernor mAnalysisGovernor;
+    /**
+     * 零延迟拍照的帧缓冲区
+     */
+    @Nullable
+    private volatile FrameRingBuffer<T> mFrameRingBuffer;
+    /**
+     * 照片写入器：零延迟拍照时写入分析帧，连拍时批量写入照片
+     */
+    private CaptureWriter mCaptureWriter;
+    /**
+     * 正在拍摄的连拍
+     */
+    @Nullable
+    private volatile CaptureBurst mActiveBurst;
 
     private ImageCapture imageCapture;
     private CameraSelector cameraSelector;
@@ -122,21 +149,11 @@ public class BaseCameraScan<T> extends CameraScan<T> {
     /**
      * 初始化
      */
-    private long currentTime = 0L;
-
     @SuppressLint("ClickableViewAccessibility")
     private void initData() {
         mExecutorService = Executors.newSingleThreadExecutor();
-        mResultLiveData = new MutableLiveData<>();
-        mResultLiveData.observe(mLifecycleOwner, result -> {
-            long time = System.currentTimeMillis();
-            if ((time - currentTime) > 100) {
-                currentTime = time;
-                handleAnalyzeResult(result);
-            } else if (mOnScanResultCallback != null) {
-                mOnScanResultCallback.onScanResultFailure();
-            }
-        });
+        mResultDispatcher = new ResultDispatcher<>(mLifecycleOwner, this::handleAnalyzeResult);
+        mCaptureWriter = new CaptureWriter(mContext);
         mRotationLiveData = new MutableLiveData<>();
         mRotationLiveData.observe(mLifecycleOwner, rotation -> {
             if (currentGravityValue != rotation) {
@@ -149,6 +166,7 @@ public class BaseCameraScan<T> extends CameraScan<T> {
                             .build();
                     // 重新绑定到生命周期
                     if (mCamera != null) processCameraProvider.unbindAll();
+                    ImageUtils.resetPlaneLayout();
                     mCamera = processCameraProvider.bindToLifecycle(
                             mLifecycleOwner,
                             cameraSelector,
@@ -165,12 +183,16 @@ public class BaseCameraScan<T> extends CameraScan<T> {
         mOnAnalyzeListener = new Analyzer.OnAnalyzeListener<>() {
             @Override
             public void onSuccess(@NonNull AnalyzeResult<T> result) {
-                mResultLiveData.postValue(result);
+                FrameRingBuffer<T> ringBuffer = mFrameRingBuffer;
+                if (ringBuffer != null) {
+                    ringBuffer.add(result);
+                }
+                mResultDispatcher.dispatch(result);
             }
 
             @Override
             public void onFailure(Exception e) {
-                mResultLiveData.postValue(null);
+                mResultDispatcher.dispatch(null);
             }
 
         };
@@ -225,8 +247,13 @@ public class BaseCameraScan<T> extends CameraScan<T> {
                         .build();
 
                 imageAnalysis.setAnalyzer(mExecutorService, image -> {
+                    AnalysisGovernor governor = mAnalysisGovernor;
                     if (isAnalyze && !isAnalyzeResult && mAnalyzer != null) {
-                        mAnalyzer.analyze(image, mOnAnalyzeListener);
+                        if (governor == null) {
+                            mAnalyzer.analyze(image, mOnAnalyzeListener);
+                        } else if (governor.tryAdmit()) {
+                            mAnalyzer.analyze(image, governor.track(mOnAnalyzeListener));
+                        }
                     }
                     image.close();
                 });
@@ -235,6 +262,8 @@ public class BaseCameraScan<T> extends CameraScan<T> {
                         .setTargetResolution(new Size(TAKE_PICTURE_WIDTH, TAKE_PICTURE_HEIGHT))
                         .build();
                 if (mCamera != null) processCameraProvider.unbindAll();
+                // 重新绑定后重新检测UV平面布局
+                ImageUtils.resetPlaneLayout();
 
                 // 绑定到生命周期
                 mCamera = processCameraProvider.bindToLifecycle(mLifecycleOwner, cameraSelector, preview, imageAnalysis, imageCapture);
@@ -297,6 +326,53 @@ public class BaseCameraScan<T> extends CameraScan<T> {
         }
     }
 
+    /**
+     * 连拍：依次拍摄，上一张拍摄完成后立即拍摄下一张；照片复制后立即关闭，在后台批量写入
+     */
+    @Override
+    public boolean takeBurst(int count, @Nullable CaptureBurst.OnBurstListener listener) {
+        if (imageCapture == null) {
+            return false;
+        }
+        CaptureBurst activeBurst = mActiveBurst;
+        if (activeBurst != null && activeBurst.isCollecting()) {
+            return false;
+        }
+        CaptureBurst burst = mCaptureWriter.beginBurst(count, listener);
+        mActiveBurst = burst;
+        takeBurstShot(burst);
+        return true;
+    }
+
+    /**
+     * 拍摄连拍的下一张照片；连拍已结束或相机已停止时结束连拍
+     */
+    private void takeBurstShot(@NonNull CaptureBurst burst) {
+        ImageCapture capture = imageCapture;
+        if (capture == null || burst != mActiveBurst || !burst.isCollecting()) {
+            burst.finish();
+            return;
+        }
+        capture.takePicture(ContextCompat.getMainExecutor(mContext), new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy image) {
+                ByteBuffer jpeg = image.getPlanes()[0].getBuffer();
+                ByteBuffer copy = ByteBuffer.allocateDirect(jpeg.remaining());
+                copy.put(jpeg);
+                copy.flip();
+                image.close();
+                burst.add(copy, null);
+                takeBurstShot(burst);
+            }
+
+            @Override
+            public void onError(@NonNull ImageCaptureException exception) {
+                burst.skip(exception);
+                takeBurstShot(burst);
+            }
+        });
+    }
+
     /**
      * 处理分析结果
      *
@@ -319,6 +395,15 @@ public class BaseCameraScan<T> extends CameraScan<T> {
     @Override
     public void stopCamera() {
         sensorManager.unregisterListener(sensorEventListener);
+        FrameRingBuffer<T> ringBuffer = mFrameRingBuffer;
+        if (ringBuffer != null) {
+            ringBuffer.clear();
+        }
+        CaptureBurst activeBurst = mActiveBurst;
+        mActiveBurst = null;
+        if (activeBurst != null) {
+            activeBurst.finish();
+        }
         if (mCameraProviderFuture != null && processCameraProvider != null) {
             try {
                 processCameraProvider.unbindAll();
@@ -357,6 +442,7 @@ public class BaseCameraScan<T> extends CameraScan<T> {
                     .build();
             // 重新绑定到生命周期
             if (mCamera != null) processCameraProvider.unbindAll();
+            ImageUtils.resetPlaneLayout();
             mCamera = processCameraProvider.bindToLifecycle(
                     mLifecycleOwner,
                     cameraSelector,
@@ -375,6 +461,44 @@ public class BaseCameraScan<T> extends CameraScan<T> {
         return this;
     }
 
+    @Override
+    public CameraScan<T> setAnalysisGovernor(@Nullable AnalysisGovernor governor) {
+        mAnalysisGovernor = governor;
+        return this;
+    }
+
+    @Override
+    public CameraScan<T> setResultDispatchPolicy(ResultDispatcher.Policy policy, long intervalMillis) {
+        mResultDispatcher.setPolicy(policy, intervalMillis);
+        return this;
+    }
+
+    @Override
+    public ResultDispatcher<T> getResultDispatcher() {
+        return mResultDispatcher;
+    }
+
+    @Override
+    public CameraScan<T> setZslBufferSize(int size) {
+        FrameRingBuffer<T> ringBuffer = mFrameRingBuffer;
+        if (ringBuffer != null) {
+            ringBuffer.clear();
+        }
+        mFrameRingBuffer = size > 0 ? new FrameRingBuffer<>(size) : null;
+        return this;
+    }
+
+    @Override
+    public boolean captureFromBuffer(long sequence, @Nullable CaptureWriter.OnCaptureWriteListener listener) {
+        FrameRingBuffer<T> ringBuffer = mFrameRingBuffer;
+        AnalyzeResult<T> frame = ringBuffer != null ? ringBuffer.acquire(sequence) : null;
+        if (frame == null) {
+            return false;
+        }
+        mCaptureWriter.writeFrame(frame, listener);
+        return true;
+    }
+
     @Override
     public void release() {
         isAnalyze = false;
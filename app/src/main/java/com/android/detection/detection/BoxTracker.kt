@@ -0,0 +1,149 @@
+package com.android.detection.detection
+
+import android.graphics.Rect
+import java.util.concurrent.TimeUnit
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+/**
+ * 检测框跟踪器：在两次检测之间按匀速模型（alpha-beta滤波）预测检测框的位置，
+ * 使叠加层可以按屏幕刷新率更新，而不必等待下一次检测结果
+ *
+ * 检测框按ML Kit的 `DetectedObject.getTrackingId()` 区分；没有跟踪ID时统一视为同一个目标。
+ * 仅在主线程使用。
+ */
+class BoxTracker(
+    /**
+     * 位置修正系数：越大越贴近最新的检测结果，越小越平滑
+     */
+    private val alpha: Float = DEFAULT_ALPHA,
+    /**
+     * 速度修正系数
+     */
+    private val beta: Float = DEFAULT_BETA,
+    /**
+     * 最长预测时长（毫秒）：超过后不再外推，停留在最后的预测位置
+     */
+    private val maxPredictionMillis: Long = DEFAULT_MAX_PREDICTION_MILLIS,
+    /**
+     * 目标超时（毫秒）：超过该时长未被检测到的目标会被移除
+     */
+    private val expireMillis: Long = DEFAULT_EXPIRE_MILLIS
+) {
+
+    private val tracks = HashMap<Int, Track>()
+
+    /**
+     * 使用检测结果更新目标
+     *
+     * @param trackingId 跟踪ID；为空时视为同一个目标
+     * @param bounds 检测框
+     * @param timeNanos 检测结果的时间，与 [System.nanoTime] 同一时基
+     */
+    fun update(trackingId: Int?, bounds: Rect, timeNanos: Long = System.nanoTime()) {
+        val id = trackingId ?: NO_TRACKING_ID
+        val track = tracks[id]
+        if (track == null) {
+            tracks[id] = Track(bounds, timeNanos)
+            return
+        }
+        track.correct(bounds, timeNanos)
+    }
+
+    /**
+     * 预测目标在指定时间的位置
+     *
+     * @param trackingId 跟踪ID；为空时视为同一个目标
+     * @param timeNanos 预测的时间，与 [System.nanoTime] 同一时基
+     * @param out 输出的检测框
+     * @return 目标不存在或已超时时返回`false`
+     */
+    fun predict(trackingId: Int?, timeNanos: Long, out: Rect): Boolean {
+        val id = trackingId ?: NO_TRACKING_ID
+        val track = tracks[id] ?: return false
+        if (TimeUnit.NANOSECONDS.toMillis(timeNanos - track.timeNanos) > expireMillis) {
+            tracks.remove(id)
+            return false
+        }
+        track.predict(timeNanos, out)
+        return true
+    }
+
+    /**
+     * 移除所有目标
+     */
+    fun clear() {
+        tracks.clear()
+    }
+
+    /**
+     * 是否有正在跟踪的目标
+     */
+    fun isEmpty(): Boolean = tracks.isEmpty()
+
+    private inner class Track(bounds: Rect, var timeNanos: Long) {
+        // 状态：中心点及宽高，速度单位为每毫秒
+        private var cx = bounds.exactCenterX()
+        private var cy = bounds.exactCenterY()
+        private var w = bounds.width().toFloat()
+        private var h = bounds.height().toFloat()
+        private var vx = 0f
+        private var vy = 0f
+        private var vw = 0f
+        private var vh = 0f
+
+        fun correct(bounds: Rect, time: Long) {
+            val dt = elapsedMillis(time)
+            if (dt <= 0f) {
+                // 同一时刻的多个结果直接取最新的
+                cx = bounds.exactCenterX()
+                cy = bounds.exactCenterY()
+                w = bounds.width().toFloat()
+                h = bounds.height().toFloat()
+                return
+            }
+            val rx = bounds.exactCenterX() - (cx + vx * dt)
+            val ry = bounds.exactCenterY() - (cy + vy * dt)
+            val rw = bounds.width() - (w + vw * dt)
+            val rh = bounds.height() - (h + vh * dt)
+            cx += vx * dt + alpha * rx
+            cy += vy * dt + alpha * ry
+            w += vw * dt + alpha * rw
+            h += vh * dt + alpha * rh
+            // 间隔过短时按最小间隔估计速度，避免噪声被放大
+            val vdt = max(dt, MIN_VELOCITY_INTERVAL_MILLIS)
+            vx += beta * rx / vdt
+            vy += beta * ry / vdt
+            vw += beta * rw / vdt
+            vh += beta * rh / vdt
+            timeNanos = time
+        }
+
+        fun predict(time: Long, out: Rect) {
+            val dt = min(elapsedMillis(time), maxPredictionMillis.toFloat()).coerceAtLeast(0f)
+            val px = cx + vx * dt
+            val py = cy + vy * dt
+            val pw = (w + vw * dt).coerceAtLeast(0f)
+            val ph = (h + vh * dt).coerceAtLeast(0f)
+            out.set(
+                (px - pw / 2).roundToInt(),
+                (py - ph / 2).roundToInt(),
+                (px + pw / 2).roundToInt(),
+                (py + ph / 2).roundToInt()
+            )
+        }
+
+        private fun elapsedMillis(time: Long): Float = (time - timeNanos) / 1_000_000f
+    }
+
+    companion object {
+        const val DEFAULT_ALPHA = 0.85f
+        const val DEFAULT_BETA = 0.3f
+        const val DEFAULT_MAX_PREDICTION_MILLIS = 200L
+        const val DEFAULT_EXPIRE_MILLIS = 1000L
+
+        private const val NO_TRACKING_ID = -1
+        private const val MIN_VELOCITY_INTERVAL_MILLIS = 16f
+    }
+}
@@ -10,4 +10,8 @@ object CameraConfig {
 //    const val ANALYZE_WIDTH = 1920
     const val TAKE_PICTURE_WIDTH = 3072 //拍照的目标分辨率
     const val TAKE_PICTURE_HEIGHT = 4096
+    const val STILL_IMAGE_BUFFERS = 3 //Camera2拍照用ImageReader的缓冲区数量：照片写入完成前占用缓冲区
+    const val ANALYZE_IMAGE_BUFFERS = 3 //Camera2分析用ImageReader的缓冲区数量：相机填充、转换中各一个，另留一个余量
+    const val ASPECT_RATIO_TOLERANCE = 0.01f //选择尺寸时纵横比的容差：尺寸取整后纵横比不完全相等
+    const val BURST_IMAGE_TIMEOUT_MILLIS = 2000L //Camera2连拍：拍摄完成后等待照片到达的最长时间
 }
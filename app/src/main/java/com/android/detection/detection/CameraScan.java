@@ -5,7 +5,10 @@ import android.view.View;
 import androidx.annotation.Nullable;
 import androidx.camera.core.CameraSelector;
 
+import com.android.detection.detection.analyze.AnalysisGovernor;
 import com.android.detection.detection.analyze.Analyzer;
+import com.android.detection.detection.capture.CaptureWriter;
+import com.android.detection.detection.capture.FrameRingBuffer;
 
 /**
  * 相机扫描基类定义；内置的默认实现见：{@link BaseCameraScan}
@@ -70,6 +73,49 @@ public abstract class CameraScan<T> implements ICamera, ICameraControl {
      * @return {@link CameraScan}
      */
     public abstract CameraScan<T> setOnScanResultCallback(OnScanResultCallback<T> callback);
+
+    /**
+     * 设置分析频率调节器：预览保持满帧率，只按调节器放行的频率分析帧；为空时每帧都交给分析器
+     *
+     * @param governor 分析频率调节器
+     * @return {@link CameraScan}
+     */
+    public abstract CameraScan<T> setAnalysisGovernor(@Nullable AnalysisGovernor governor);
+
+    /**
+     * 设置分析结果的分发策略；默认为：{@link ResultDispatcher.Policy#LATEST}
+     *
+     * @param policy         分发策略
+     * @param intervalMillis 分发间隔（毫秒），仅 {@link ResultDispatcher.Policy#FIXED_RATE} 有效
+     * @return {@link CameraScan}
+     */
+    public abstract CameraScan<T> setResultDispatchPolicy(ResultDispatcher.Policy policy, long intervalMillis);
+
+    /**
+     * 获取分析结果分发器，可通过其已分发/合并/丢弃的数量来观察结果的分发情况
+     *
+     * @return {@link ResultDispatcher}
+     */
+    public abstract ResultDispatcher<T> getResultDispatcher();
+
+    /**
+     * 设置零延迟拍照的帧缓冲区大小：保留最近N帧带检测结果的分析帧，供 {@link #captureFromBuffer(long, CaptureWriter.OnCaptureWriteListener)} 使用；
+     * 需在{@link #startCamera()}之前调用
+     *
+     * @param size 保留的帧数；为0时不缓冲
+     * @return {@link CameraScan}
+     * @see FrameRingBuffer
+     */
+    public abstract CameraScan<T> setZslBufferSize(int size);
+
+    /**
+     * 零延迟拍照：将帧缓冲区中指定帧序号的分析帧（即检测结果所对应的画面）编码为JPEG保存，无需重新拍摄
+     *
+     * @param sequence 帧序号，参见 {@link AnalyzeResult#getSequence()}
+     * @param listener 写入结果监听，在后台线程上回调
+     * @return 缓冲区中没有该帧（未启用缓冲或已被新帧替换）时返回{@code false}
+     */
+    public abstract boolean captureFromBuffer(long sequence, @Nullable CaptureWriter.OnCaptureWriteListener listener);
     /**
      * 扫描结果回调
      *
@@ -78,6 +124,10 @@ public abstract class CameraScan<T> implements ICamera, ICameraControl {
     public interface OnScanResultCallback<T> {
         /**
          * 扫描结果回调
+         * <p>
+         * 回调返回后结果会被释放，其图像数据将归还给分析器复用；如需在回调之外继续使用，
+         * 请调用 {@link AnalyzeResult#acquire()}（用完后调用 {@link AnalyzeResult#release()}），
+         * 或通过 {@link AnalyzeResult#copy()} 保留一份副本。
          *
          * @param result 扫描结果
          */
@@ -85,6 +135,8 @@ public abstract class CameraScan<T> implements ICamera, ICameraControl {
 
         /**
          * 扫描结果识别失败时触发此回调方法
+         * <p>
+         * 因分发策略（{@link ResultDispatcher.Policy}）被合并或丢弃的结果不会触发此回调。
          */
         default void onScanResultFailure() {
 
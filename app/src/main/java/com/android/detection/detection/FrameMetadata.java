@@ -1,16 +1,31 @@
 package com.android.detection.detection;
 
+import android.graphics.Rect;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * 帧元数据
+ * <p>
+ * 启用感兴趣区域（ROI）或缩小分析图像时，分析的图像数据与完整帧不同：{@link #getWidth()}、{@link #getHeight()}
+ * 为图像数据的宽高，{@link #getSourceWidth()}、{@link #getSourceHeight()} 为完整帧的宽高，
+ * {@link #getCropRect()} 为图像数据在完整帧中的区域（传感器坐标，即旋转前的坐标），
+ * {@link #getScale()} 为该区域缩小的倍数。
  */
+@SuppressWarnings("unused")
 public class FrameMetadata {
 
     private final int width;
     private final int height;
     private final int rotation;
 
+    private final int sourceWidth;
+    private final int sourceHeight;
+    @Nullable
+    private final Rect cropRect;
+    private final int scale;
+
     /**
      * 帧元数据的宽
      *
@@ -38,10 +53,131 @@ public class FrameMetadata {
         return rotation;
     }
 
+    /**
+     * 完整帧的宽
+     *
+     * @return 完整帧的宽
+     */
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    /**
+     * 完整帧的高
+     *
+     * @return 完整帧的高
+     */
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    /**
+     * 图像数据在完整帧中的区域（传感器坐标）
+     *
+     * @return 裁剪区域；仅缩小时为整个完整帧；未裁剪且未缩小时返回{@code null}
+     */
+    @Nullable
+    public Rect getCropRect() {
+        return cropRect == null ? null : new Rect(cropRect);
+    }
+
+    /**
+     * 图像数据相对裁剪区域缩小的倍数
+     *
+     * @return 缩小倍数；未缩小时为1
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * 图像数据是否经过裁剪或缩小，即与完整帧不同
+     *
+     * @return 返回{@code true} 表示已裁剪或缩小
+     */
+    public boolean isTransformed() {
+        return cropRect != null;
+    }
+
     public FrameMetadata(int width, int height, int rotation) {
         this.width = width;
         this.height = height;
         this.rotation = rotation;
+        this.sourceWidth = width;
+        this.sourceHeight = height;
+        this.cropRect = null;
+        this.scale = 1;
+    }
+
+    /**
+     * @param sourceWidth  完整帧的宽
+     * @param sourceHeight 完整帧的高
+     * @param cropRect     图像数据在完整帧中的区域（传感器坐标）
+     */
+    public FrameMetadata(int sourceWidth, int sourceHeight, int rotation, @NonNull Rect cropRect) {
+        this(sourceWidth, sourceHeight, rotation, cropRect, 1);
+    }
+
+    /**
+     * @param sourceWidth  完整帧的宽
+     * @param sourceHeight 完整帧的高
+     * @param cropRect     图像数据在完整帧中的区域（传感器坐标）
+     * @param scale        该区域缩小的倍数，区域的宽高需为其整数倍
+     */
+    public FrameMetadata(int sourceWidth, int sourceHeight, int rotation, @NonNull Rect cropRect, int scale) {
+        if (scale < 1 || cropRect.width() % scale != 0 || cropRect.height() % scale != 0) {
+            throw new IllegalArgumentException("crop " + cropRect + " is not a multiple of scale " + scale);
+        }
+        this.width = cropRect.width() / scale;
+        this.height = cropRect.height() / scale;
+        this.rotation = rotation;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.cropRect = new Rect(cropRect);
+        this.scale = scale;
+    }
+
+    /**
+     * 将分析结果中的区域映射到完整帧：分析结果的坐标为图像数据旋转后（正向）的坐标，
+     * 按缩小倍数放大并平移后为完整帧旋转后（正向）的坐标
+     *
+     * @param rect 图像数据正向坐标中的区域
+     * @return 完整帧正向坐标中的区域
+     */
+    @NonNull
+    public Rect mapToSource(@NonNull Rect rect) {
+        Rect mapped = new Rect(rect);
+        if (cropRect == null) {
+            return mapped;
+        }
+        mapped.set(mapped.left * scale, mapped.top * scale, mapped.right * scale, mapped.bottom * scale);
+        int dx;
+        int dy;
+        switch (normalizeRotation(rotation)) {
+            case 90:
+                dx = sourceHeight - cropRect.bottom;
+                dy = cropRect.left;
+                break;
+            case 180:
+                dx = sourceWidth - cropRect.right;
+                dy = sourceHeight - cropRect.bottom;
+                break;
+            case 270:
+                dx = cropRect.top;
+                dy = sourceWidth - cropRect.right;
+                break;
+            default:
+                dx = cropRect.left;
+                dy = cropRect.top;
+                break;
+        }
+        mapped.offset(dx, dy);
+        return mapped;
+    }
+
+    private static int normalizeRotation(int rotation) {
+        int degrees = rotation % 360;
+        return degrees < 0 ? degrees + 360 : degrees;
     }
 
     @NonNull
@@ -51,6 +187,7 @@ public class FrameMetadata {
                 "width=" + width +
                 ", height=" + height +
                 ", rotation=" + rotation +
+                (cropRect != null ? ", source=" + sourceWidth + "x" + sourceHeight + ", crop=" + cropRect + ", scale=" + scale : "") +
                 '}';
     }
 }
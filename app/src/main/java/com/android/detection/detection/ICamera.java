@@ -3,6 +3,9 @@ package com.android.detection.detection;
 import androidx.annotation.Nullable;
 import androidx.camera.core.Camera;
 
+import com.android.detection.detection.capture.CaptureBurst;
+import com.android.detection.detection.capture.CaptureWriter;
+
 /**
  * 相机定义
  */
@@ -20,6 +23,15 @@ public interface ICamera {
 
     void takePhoto();
 
+    /**
+     * 连拍：依次拍摄 {@code count} 张照片，照片在后台批量写入
+     *
+     * @param count    连拍张数，不超过 {@link CaptureWriter#MAX_BURST_SIZE}
+     * @param listener 连拍结束监听，在后台线程上回调，参见 {@link CaptureBurst.BurstReport}
+     * @return 相机未就绪或上一次连拍尚未拍摄完成时返回{@code false}
+     */
+    boolean takeBurst(int count, @Nullable CaptureBurst.OnBurstListener listener);
+
     /**
      * 释放
      */
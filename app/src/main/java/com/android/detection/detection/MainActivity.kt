@@ -2,6 +2,7 @@ package com.android.detection.detection
 
 import android.Manifest
 import android.content.Intent
+import android.net.Uri
 import android.os.Build
 import android.os.Bundle
 import android.os.Environment
@@ -18,8 +19,12 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.camera.view.PreviewView
 import androidx.core.net.toUri
 import androidx.core.view.WindowCompat
+import com.android.detection.detection.analyze.AnalysisGovernor
 import com.android.detection.detection.analyze.Analyzer
+import com.android.detection.detection.analyze.MotionGate
 import com.android.detection.detection.analyze.ObjectDetectionAnalyzer
+import com.android.detection.detection.capture.AutoCaptureEngine
+import com.android.detection.detection.capture.CaptureWriter
 import com.android.detection.detection.util.PermissionUtils
 import com.google.mlkit.vision.objects.DetectedObject
 import com.king.app.dialog.AppDialog
@@ -41,6 +46,22 @@ class MainActivity : AppCompatActivity(),
     private var flash: Button? = null
     private var flashStatus = false
 
+    /**
+     * 最近一次检测框（检测时，完整帧坐标）位于取景框内的帧序号；仅在启用 [ZSL_CAPTURE] 时使用
+     */
+    private var approvedSequence = AnalyzeResult.NO_SEQUENCE
+
+    /**
+     * 自动拍照：目标在取景框内稳定后自动拍照
+     */
+    private var autoCaptureEngine: AutoCaptureEngine? = null
+
+    /**
+     * 取景框所对应的完整帧正向尺寸；帧尺寸变化时重新计算取景框
+     */
+    private var captureWindowWidth = 0
+    private var captureWindowHeight = 0
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
 //        setContentView(R.layout.camera2_scan)
@@ -52,12 +73,16 @@ class MainActivity : AppCompatActivity(),
         flash = findViewById(R.id.flash)
         tack?.visibility = View.GONE
         objectBoundsView = findViewById(R.id.object_bound)
+        autoCaptureEngine = createAutoCaptureEngine()
 //        previewView = findViewById<TextureView?>(R.id.previewView)
         surfaceView = findViewById<SurfaceView?>(R.id.mSurfaceView)
 //        mCameraScan = BaseCameraScan(this, previewView!!)
 //        mCameraScan = BaseCamera2Scan<MutableList<DetectedObject>>(this, this, previewView!!)
         mCameraScan = BaseCamera1Scan<MutableList<DetectedObject>>(this, this, surfaceView!!)
-        mCameraScan!!.setAnalyzer(createAnalyzer()).setOnScanResultCallback(this)
+        mCameraScan!!.setAnalyzer(createAnalyzer())
+            .setAnalysisGovernor(AnalysisGovernor())
+            .setZslBufferSize(if (ZSL_CAPTURE) ZSL_BUFFER_SIZE else 0)
+            .setOnScanResultCallback(this)
         flash?.setOnClickListener {
             if (!flashStatus) {
                 flashStatus = true
@@ -69,7 +94,8 @@ class MainActivity : AppCompatActivity(),
                 flash?.text = "闪光灯关"
             }
         }
-        tack?.setOnClickListener { mCameraScan?.takePhoto() }
+        tack?.setOnClickListener { takePhoto() }
+        tack?.setOnLongClickListener { takeBurst() }
         picture?.setOnClickListener {
             try {
                 Intent(
@@ -128,11 +154,45 @@ class MainActivity : AppCompatActivity(),
         }
     }
 
+    /**
+     * 拍照：默认重新拍摄完整分辨率的照片；启用 [ZSL_CAPTURE] 时优先直接保存检测框通过取景框检查的那一帧（零延迟），
+     * 缓冲区中已没有该帧时再重新拍摄
+     *
+     * @param sequence 要保存的帧序号，默认为最近一次通过取景框检查的帧
+     */
+    private fun takePhoto(sequence: Long = approvedSequence) {
+        val captured = ZSL_CAPTURE && sequence != AnalyzeResult.NO_SEQUENCE &&
+                mCameraScan?.captureFromBuffer(sequence, object : CaptureWriter.OnCaptureWriteListener {
+                    override fun onSuccess(uri: Uri, timings: CaptureWriter.Timings) {
+                        runOnUiThread { Toast.makeText(this@MainActivity, "拍照成功", Toast.LENGTH_SHORT).show() }
+                    }
+
+                    override fun onFailure(e: Exception) {
+                        e.printStackTrace()
+                    }
+                }) == true
+        if (!captured) mCameraScan?.takePhoto()
+    }
+
+    /**
+     * 连拍：长按拍照按钮时连续拍摄 [BURST_SIZE] 张
+     */
+    private fun takeBurst(): Boolean {
+        val started = mCameraScan?.takeBurst(BURST_SIZE) { report ->
+            runOnUiThread {
+                Toast.makeText(this, "连拍完成：${report.saved}/${report.requested}", Toast.LENGTH_SHORT).show()
+            }
+        } == true
+        if (!started) Toast.makeText(this, "相机未就绪或正在连拍", Toast.LENGTH_SHORT).show()
+        return true
+    }
+
     /**
      * 释放相机
      */
     private fun releaseCamera() {
         if (mCameraScan != null) mCameraScan!!.release()
+        autoCaptureEngine?.reset()
 
     }
 
@@ -165,9 +225,18 @@ class MainActivity : AppCompatActivity(),
         if (result == null) {
             objectBoundsView!!.setObjectBounds(null) {}
             tack?.visibility = View.GONE
+            approvedSequence = AnalyzeResult.NO_SEQUENCE
+            autoCaptureEngine?.update(null, null, AnalyzeResult.NO_SEQUENCE, System.nanoTime())
             return
         }
-        objectBoundsView!!.setObjectBounds(result.result[0].boundingBox) {
+        val detectedObject = result.result[0]
+        val sequence = result.sequence
+        updateCaptureWindow(result.frameMetadata)
+        // 只按检测时的检测框判断，界面上预测的检测框不决定保存哪一帧
+        val inside = autoCaptureEngine?.isInsideWindow(detectedObject.boundingBox) == true
+        approvedSequence = if (inside) sequence else AnalyzeResult.NO_SEQUENCE
+        autoCaptureEngine?.update(detectedObject.boundingBox, detectedObject.trackingId, sequence, System.nanoTime())
+        objectBoundsView!!.setObjectBounds(detectedObject.boundingBox, detectedObject.trackingId) {
             if (it) tack?.visibility = View.VISIBLE
             else tack?.visibility = View.GONE
         }
@@ -190,7 +259,60 @@ class MainActivity : AppCompatActivity(),
 //        AppDialog.INSTANCE.showDialog(config, false)
     }
 
+    /**
+     * 创建自动拍照引擎；取景框在收到检测结果后按帧尺寸设置，参见 [updateCaptureWindow]
+     */
+    private fun createAutoCaptureEngine(): AutoCaptureEngine {
+        return AutoCaptureEngine { sequence, _ ->
+            // 直接保存触发拍照的那一帧，缓冲区中已没有该帧时再重新拍摄
+            takePhoto(sequence)
+        }
+    }
+
+    /**
+     * 按检测结果所在帧的尺寸设置自动拍照的取景框：检测框已映射回完整帧的正向坐标，取景框使用相同的坐标系；
+     * 视图布局完成前不设置
+     */
+    private fun updateCaptureWindow(frameMetadata: FrameMetadata) {
+        val rotated = frameMetadata.rotation % 180 != 0
+        val width = if (rotated) frameMetadata.sourceHeight else frameMetadata.sourceWidth
+        val height = if (rotated) frameMetadata.sourceWidth else frameMetadata.sourceHeight
+        if (width == captureWindowWidth && height == captureWindowHeight) return
+        val view = objectBoundsView ?: return
+        if (!view.isLaidOut) return
+        val window = view.getRegionOfInterest(0f)
+        window.left *= width
+        window.right *= width
+        window.top *= height
+        window.bottom *= height
+        autoCaptureEngine?.setCaptureWindow(window)
+        captureWindowWidth = width
+        captureWindowHeight = height
+    }
+
     fun createAnalyzer(): Analyzer<MutableList<DetectedObject>?>? {
+        // 画面静止时跳过检测，沿用上一次的结果；只检测取景框附近的区域，并缩小一半后再检测
         return ObjectDetectionAnalyzer()
+            .setMotionGate(MotionGate())
+            .setRegionOfInterest(objectBoundsView!!.getRegionOfInterest())
+            .setDownscale(2)
+    }
+
+    companion object {
+        /**
+         * 是否零延迟拍照：直接保存分析帧。分析帧只包含感兴趣区域且已缩小（参见 [createAnalyzer]），
+         * 画质低于重新拍摄的照片，因此默认关闭
+         */
+        private const val ZSL_CAPTURE = false
+
+        /**
+         * 零延迟拍照保留的帧数
+         */
+        private const val ZSL_BUFFER_SIZE = 3
+
+        /**
+         * 连拍张数
+         */
+        private const val BURST_SIZE = 5
     }
-}
\ No newline at end of file
+}
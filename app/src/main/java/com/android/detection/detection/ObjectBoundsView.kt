@@ -5,8 +5,10 @@ import android.graphics.Canvas
 import android.graphics.Color
 import android.graphics.Paint
 import android.graphics.Rect
+import android.graphics.RectF
 import android.util.AttributeSet
 import android.util.DisplayMetrics
+import android.view.Choreographer
 import android.view.View
 import android.view.WindowManager
 import com.android.detection.detection.CameraConfig.ANALYZE_HEIGHT
@@ -16,7 +18,6 @@ import kotlin.math.min
 
 class ObjectBoundsView(context: Context, attrs: AttributeSet?) : View(context, attrs) {
     private var objectBound: Rect? = null
-    private var scaledObjectRect: Rect? = null
     private var rectPaint: Paint? = null
     private var scaleFactorTop = 0f
     private var scaleFactorBottom = 0f
@@ -27,6 +28,20 @@ class ObjectBoundsView(context: Context, attrs: AttributeSet?) : View(context, a
     private var verticalGap = 0
     private var previewHeight = 0
 
+    /**
+     * 检测框跟踪器：两次检测之间按屏幕刷新率预测检测框的位置
+     */
+    private val boxTracker = BoxTracker()
+    private var trackingId: Int? = null
+    private val predictedBounds = Rect()
+    private var canTake: ((Boolean) -> Unit)? = null
+    private var lastCanTake: Boolean? = null
+    private var frameCallbackPosted = false
+    private val frameCallback = Choreographer.FrameCallback { frameTimeNanos ->
+        frameCallbackPosted = false
+        onVsync(frameTimeNanos)
+    }
+
     init {
         init()
     }
@@ -51,36 +66,129 @@ class ObjectBoundsView(context: Context, attrs: AttributeSet?) : View(context, a
         previewHeight = (screenHeight - (2 * verticalGap)).toInt()
     }
 
-    fun setObjectBounds(objectBounds: Rect?, canTake: (Boolean) -> Unit) {
+    /**
+     * 设置检测框；之后在下一次检测结果到达前，检测框会按跟踪器的预测随屏幕刷新移动
+     *
+     * @param objectBounds 检测框（分析图像坐标）；为空时清除
+     * @param trackingId 检测框的跟踪ID，如：`DetectedObject.getTrackingId()`
+     * @param canTake 检测框是否位于取景框内
+     */
+    fun setObjectBounds(objectBounds: Rect?, trackingId: Int? = null, canTake: (Boolean) -> Unit) {
         if (objectBounds == null) {
             this.objectBound = null
+            this.canTake = null
+            lastCanTake = null
+            boxTracker.clear()
+            removeFrameCallback()
+            invalidate()
+            return
+        }
+        if (trackingId != this.trackingId) boxTracker.clear()
+        this.trackingId = trackingId
+        this.canTake = canTake
+        boxTracker.update(trackingId, objectBounds)
+        lastCanTake = null
+        onVsync(System.nanoTime())
+    }
+
+    /**
+     * 按预测的位置更新检测框
+     */
+    private fun onVsync(frameTimeNanos: Long) {
+        if (!boxTracker.predict(trackingId, frameTimeNanos, predictedBounds)) {
+            // 目标已超时
+            objectBound = null
+            if (lastCanTake == true) canTake?.invoke(false)
+            lastCanTake = false
             invalidate()
             return
         }
+        val rect = objectBound ?: Rect()
+        mapToView(predictedBounds, rect)
+        objectBound = rect
+        val inside = rect.left >= CAPTURE_HORIZONTAL_MARGIN &&
+                rect.right <= screenWidth - CAPTURE_HORIZONTAL_MARGIN &&
+                rect.top >= CAPTURE_VERTICAL_MARGIN &&
+                rect.bottom <= screenHeight - CAPTURE_VERTICAL_MARGIN
+        if (inside != lastCanTake) {
+            lastCanTake = inside
+            canTake?.invoke(inside)
+        }
+        invalidate()
+        postFrameCallback()
+    }
+
+    /**
+     * 将分析图像坐标的检测框映射为视图坐标
+     */
+    private fun mapToView(objectBounds: Rect, out: Rect) {
         scaleFactorLeft = objectBounds.left / ANALYZE_WIDTH.toFloat()
         scaleFactorRight = objectBounds.right / ANALYZE_WIDTH.toFloat()
         scaleFactorTop = objectBounds.top / ANALYZE_HEIGHT.toFloat()
         scaleFactorBottom = objectBounds.bottom / ANALYZE_HEIGHT.toFloat()
-        scaledObjectRect = Rect()
-        scaledObjectRect!!.left = (screenWidth * scaleFactorLeft).toInt()
-        scaledObjectRect!!.right = (screenWidth * scaleFactorRight).toInt()
-        scaledObjectRect!!.top = (previewHeight * scaleFactorTop).toInt() + verticalGap
-        scaledObjectRect!!.bottom = (previewHeight * scaleFactorBottom).toInt() + verticalGap
-        if (scaledObjectRect!!.top < verticalGap) scaledObjectRect!!.top = verticalGap
-        if (scaledObjectRect!!.bottom > (screenHeight - verticalGap))
-            scaledObjectRect!!.bottom = (screenHeight - verticalGap).toInt()
-        this.objectBound = scaledObjectRect
-        if (scaledObjectRect!!.left >= 50 &&
-            scaledObjectRect!!.right <= screenWidth - 50 &&
-            scaledObjectRect!!.top >= 210 &&
-            scaledObjectRect!!.bottom <= screenHeight - 210
-        ) canTake(true)
-        else canTake(false)
-        invalidate()
+        out.left = (screenWidth * scaleFactorLeft).toInt()
+        out.right = (screenWidth * scaleFactorRight).toInt()
+        out.top = (previewHeight * scaleFactorTop).toInt() + verticalGap
+        out.bottom = (previewHeight * scaleFactorBottom).toInt() + verticalGap
+        if (out.top < verticalGap) out.top = verticalGap
+        if (out.bottom > (screenHeight - verticalGap))
+            out.bottom = (screenHeight - verticalGap).toInt()
+    }
+
+    /**
+     * 获取取景框对应的感兴趣区域：将取景框映射回分析图像，并向外扩展一定比例，
+     * 使部分超出取景框的物体仍能被完整检测到，从而正确判断是否位于取景框内
+     *
+     * @param margin 向外扩展的比例（相对于取景框的宽高）
+     * @return 分析图像的归一化坐标（0~1）
+     */
+    fun getRegionOfInterest(margin: Float = DEFAULT_ROI_MARGIN): RectF {
+        val left = CAPTURE_HORIZONTAL_MARGIN / screenWidth
+        val right = (screenWidth - CAPTURE_HORIZONTAL_MARGIN) / screenWidth
+        val top = (CAPTURE_VERTICAL_MARGIN - verticalGap) / previewHeight.toFloat()
+        val bottom = (screenHeight - CAPTURE_VERTICAL_MARGIN - verticalGap) / previewHeight.toFloat()
+        val dx = (right - left) * margin
+        val dy = (bottom - top) * margin
+        return RectF(
+            (left - dx).coerceIn(0f, 1f),
+            (top - dy).coerceIn(0f, 1f),
+            (right + dx).coerceIn(0f, 1f),
+            (bottom + dy).coerceIn(0f, 1f)
+        )
+    }
+
+    private fun postFrameCallback() {
+        if (frameCallbackPosted || !isAttachedToWindow) return
+        frameCallbackPosted = true
+        Choreographer.getInstance().postFrameCallback(frameCallback)
+    }
+
+    private fun removeFrameCallback() {
+        if (!frameCallbackPosted) return
+        frameCallbackPosted = false
+        Choreographer.getInstance().removeFrameCallback(frameCallback)
+    }
+
+    override fun onDetachedFromWindow() {
+        removeFrameCallback()
+        super.onDetachedFromWindow()
     }
 
     override fun onDraw(canvas: Canvas) {
         super.onDraw(canvas)
         objectBound?.let { canvas.drawRect(it, rectPaint!!) }
     }
-}
\ No newline at end of file
+
+    companion object {
+        /**
+         * 取景框的边距，与 [SquareOverlayView] 一致
+         */
+        const val CAPTURE_HORIZONTAL_MARGIN = 50
+        const val CAPTURE_VERTICAL_MARGIN = 210
+
+        /**
+         * 感兴趣区域默认向外扩展的比例
+         */
+        const val DEFAULT_ROI_MARGIN = 0.1f
+    }
+}
@@ -0,0 +1,267 @@
+package com.android.detection.detection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * 分析结果分发器：将分析线程上产生的结果投递到主线程，供各相机实现共用
+ * <p>
+ * 支持三种分发策略，参见 {@link Policy}；结果按帧序号 {@link AnalyzeResult#getSequence()} 保证不会在更新的结果之后
+ * 分发旧结果。分发器持有结果的引用：结果分发完成、被合并或被丢弃后都会自动释放。
+ *
+ * @param <T> 分析结果数据类型
+ */
+@SuppressWarnings("unused")
+public class ResultDispatcher<T> {
+
+    /**
+     * 分发策略
+     */
+    public enum Policy {
+        /**
+         * 只分发最新的结果：主线程处理前到达的多个结果合并为最新的一个
+         */
+        LATEST,
+        /**
+         * 按固定频率分发最新的结果：两次分发的间隔不小于 {@link #setPolicy(Policy, long)} 指定的间隔
+         */
+        FIXED_RATE,
+        /**
+         * 逐个分发每一个结果
+         */
+        EVERY
+    }
+
+    /**
+     * 结果监听
+     *
+     * @param <T> 分析结果数据类型
+     */
+    public interface OnResultListener<T> {
+        /**
+         * 在主线程分发结果；回调返回后结果即被释放
+         *
+         * @param result 分析结果；分析失败时为{@code null}
+         */
+        @MainThread
+        void onResult(@Nullable AnalyzeResult<T> result);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LifecycleOwner lifecycleOwner;
+    private final OnResultListener<T> listener;
+
+    private Policy policy = Policy.LATEST;
+    private long intervalMillis;
+
+    /**
+     * 等待分发的结果（{@link Policy#LATEST}、{@link Policy#FIXED_RATE}）
+     */
+    @Nullable
+    private AnalyzeResult<T> pendingResult;
+    private boolean hasPendingResult;
+    private boolean drainScheduled;
+    private long lastDeliveryTime;
+
+    /**
+     * 最近一次分发的帧序号
+     */
+    private long lastDeliveredSequence = AnalyzeResult.NO_SEQUENCE;
+
+    private long deliveredCount;
+    private long coalescedCount;
+    private long failedCount;
+    private long droppedCount;
+
+    private final Runnable drainRunnable = this::drainPending;
+
+    public ResultDispatcher(@NonNull LifecycleOwner lifecycleOwner, @NonNull OnResultListener<T> listener) {
+        this.lifecycleOwner = lifecycleOwner;
+        this.listener = listener;
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            observeLifecycle();
+        } else {
+            mainHandler.post(this::observeLifecycle);
+        }
+    }
+
+    /**
+     * 页面销毁时丢弃等待分发的结果
+     */
+    @MainThread
+    private void observeLifecycle() {
+        lifecycleOwner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * 设置分发策略
+     *
+     * @param policy         分发策略
+     * @param intervalMillis 分发间隔（毫秒），仅 {@link Policy#FIXED_RATE} 有效
+     * @return {@link ResultDispatcher}
+     */
+    @NonNull
+    public synchronized ResultDispatcher<T> setPolicy(@NonNull Policy policy, long intervalMillis) {
+        this.policy = policy;
+        this.intervalMillis = Math.max(0, intervalMillis);
+        return this;
+    }
+
+    /**
+     * 分发结果；可在任意线程调用，结果的引用转交给分发器
+     * <p>
+     * 合并时失败（{@code null}）不会覆盖等待分发的结果，避免分发器繁忙时真实的结果被随后的失败掩盖。
+     *
+     * @param result 分析结果；分析失败时为{@code null}
+     */
+    public void dispatch(@Nullable AnalyzeResult<T> result) {
+        synchronized (this) {
+            if (result == null) {
+                failedCount++;
+            }
+            if (policy != Policy.EVERY) {
+                if (hasPendingResult) {
+                    if (result == null) {
+                        // 已有等待分发的结果（或失败）时忽略失败
+                        return;
+                    }
+                    if (pendingResult != null) {
+                        coalescedCount++;
+                        pendingResult.release();
+                    }
+                }
+                pendingResult = result;
+                hasPendingResult = true;
+                scheduleDrain();
+                return;
+            }
+        }
+        mainHandler.post(() -> deliver(result));
+    }
+
+    /**
+     * 丢弃所有等待分发的结果
+     */
+    public synchronized void clear() {
+        mainHandler.removeCallbacks(drainRunnable);
+        drainScheduled = false;
+        if (pendingResult != null) {
+            droppedCount++;
+            pendingResult.release();
+        }
+        pendingResult = null;
+        hasPendingResult = false;
+    }
+
+    /**
+     * 已分发的结果数量（不含失败）
+     */
+    public synchronized long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    /**
+     * 被更新的结果合并掉（未分发）的结果数量（不含失败）
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * 收到的失败（{@code null}）数量，无论是否分发
+     */
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * 因过期或页面不可见而丢弃的结果数量（不含失败）
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        long delay = 0;
+        if (policy == Policy.FIXED_RATE) {
+            delay = Math.max(0, lastDeliveryTime + intervalMillis - SystemClock.uptimeMillis());
+        }
+        mainHandler.postDelayed(drainRunnable, delay);
+    }
+
+    private void drainPending() {
+        AnalyzeResult<T> result;
+        synchronized (this) {
+            drainScheduled = false;
+            if (!hasPendingResult) {
+                return;
+            }
+            result = pendingResult;
+            pendingResult = null;
+            hasPendingResult = false;
+        }
+        deliver(result);
+    }
+
+    @MainThread
+    private void deliver(@Nullable AnalyzeResult<T> result) {
+        long sequence = result != null ? result.getSequence() : AnalyzeResult.NO_SEQUENCE;
+        boolean drop;
+        synchronized (this) {
+            boolean stale = sequence != AnalyzeResult.NO_SEQUENCE && sequence <= lastDeliveredSequence;
+            boolean visible = lifecycleOwner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+            drop = stale || !visible;
+            if (result == null) {
+                // 失败已在分发时计数
+                if (!drop) {
+                    lastDeliveryTime = SystemClock.uptimeMillis();
+                }
+            } else if (drop) {
+                droppedCount++;
+            } else {
+                deliveredCount++;
+                lastDeliveryTime = SystemClock.uptimeMillis();
+                if (sequence != AnalyzeResult.NO_SEQUENCE) {
+                    lastDeliveredSequence = sequence;
+                }
+            }
+        }
+        try {
+            if (!drop) {
+                listener.onResult(result);
+            }
+        } finally {
+            if (result != null) {
+                result.release();
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "ResultDispatcher{" +
+                "policy=" + policy +
+                ", delivered=" + deliveredCount +
+                ", coalesced=" + coalescedCount +
+                ", dropped=" + droppedCount +
+                ", failed=" + failedCount +
+                '}';
+    }
+}
@@ -16,8 +16,8 @@ class SquareOverlayView(context: Context, attrs: AttributeSet?) : View(context,
         strokeWidth = 5f
     }
 
-    private var horizontalSpacing = 50
-    private var longitudinalSpacing = 210
+    private var horizontalSpacing = ObjectBoundsView.CAPTURE_HORIZONTAL_MARGIN
+    private var longitudinalSpacing = ObjectBoundsView.CAPTURE_VERTICAL_MARGIN
 
     @SuppressLint("DrawAllocation")
     override fun onDraw(canvas: Canvas) {
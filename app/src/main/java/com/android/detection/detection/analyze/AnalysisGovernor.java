@@ -0,0 +1,296 @@
+package com.android.detection.detection.analyze;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.detection.detection.AnalyzeResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析频率调节器：放在 {@link Analyzer#analyze} 之前，根据实测的分析耗时及进程CPU占用自动调整帧的放行频率，
+ * 使预览保持满帧率，而分析只以设备能持续承受的频率运行
+ * <p>
+ * 放行间隔 = 平均分析耗时 / 目标占用率 × CPU退避系数，并限制在 {@link #setRateRange(float, float)} 指定的范围内；
+ * 进程CPU占用超出预算时退避系数逐步增大，回落后逐步恢复。
+ * <p>
+ * 用法：帧到达时调用 {@link #tryAdmit()}，返回{@code false}时直接丢弃该帧；放行的帧通过 {@link #track(Analyzer.OnAnalyzeListener)}
+ * 包装分析监听器，以便测量从放行到返回结果的耗时。
+ */
+@SuppressWarnings("unused")
+public class AnalysisGovernor {
+
+    /**
+     * 默认最低分析帧率
+     */
+    public static final float DEFAULT_MIN_FPS = 1F;
+    /**
+     * 默认最高分析帧率
+     */
+    public static final float DEFAULT_MAX_FPS = 15F;
+    /**
+     * 默认目标占用率：分析器忙碌时间占总时间的比例
+     */
+    public static final float DEFAULT_TARGET_UTILIZATION = 0.8F;
+    /**
+     * 默认CPU预算：进程CPU占用占全部核心的比例
+     */
+    public static final float DEFAULT_CPU_BUDGET = 0.5F;
+
+    /**
+     * 耗时滑动平均的平滑系数
+     */
+    private static final float LATENCY_SMOOTHING = 0.2F;
+    /**
+     * CPU占用的采样周期
+     */
+    private static final long CPU_SAMPLE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final float MAX_CPU_BACKOFF = 4F;
+    private static final float CPU_BACKOFF_STEP = 1.25F;
+    private static final float CPU_RECOVER_STEP = 0.9F;
+
+    private static final int CPU_CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private long minIntervalNanos;
+    private long maxIntervalNanos;
+    private float targetUtilization = DEFAULT_TARGET_UTILIZATION;
+    private float cpuBudget = DEFAULT_CPU_BUDGET;
+
+    /**
+     * 平均分析耗时；尚未测量时为0
+     */
+    private long averageLatencyNanos;
+    private float cpuBackoff = 1F;
+    private float cpuLoad;
+    private long intervalNanos;
+    private long nextAdmitTime;
+
+    private long lastCpuSampleTime;
+    private long lastCpuTimeMillis;
+
+    private long admittedCount;
+    private long skippedCount;
+    private long replacedCount;
+
+    public AnalysisGovernor() {
+        setRateRange(DEFAULT_MIN_FPS, DEFAULT_MAX_FPS);
+    }
+
+    /**
+     * 设置分析帧率的范围
+     *
+     * @param minFps 最低分析帧率
+     * @param maxFps 最高分析帧率
+     * @return {@link AnalysisGovernor}
+     */
+    @NonNull
+    public synchronized AnalysisGovernor setRateRange(float minFps, float maxFps) {
+        if (minFps <= 0 || maxFps < minFps) {
+            throw new IllegalArgumentException("require 0 < minFps <= maxFps");
+        }
+        this.minIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxFps);
+        this.maxIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / minFps);
+        updateInterval();
+        return this;
+    }
+
+    /**
+     * 设置目标占用率：分析器忙碌时间占总时间的比例，越小留给其他工作的余量越大
+     *
+     * @param targetUtilization 目标占用率，取值范围：(0, 1]
+     * @return {@link AnalysisGovernor}
+     */
+    @NonNull
+    public synchronized AnalysisGovernor setTargetUtilization(float targetUtilization) {
+        if (targetUtilization <= 0 || targetUtilization > 1) {
+            throw new IllegalArgumentException("targetUtilization must be in (0, 1]");
+        }
+        this.targetUtilization = targetUtilization;
+        updateInterval();
+        return this;
+    }
+
+    /**
+     * 设置CPU预算：进程CPU占用占全部核心的比例，超出后降低分析频率
+     *
+     * @param cpuBudget CPU预算，取值范围：(0, 1]
+     * @return {@link AnalysisGovernor}
+     */
+    @NonNull
+    public synchronized AnalysisGovernor setCpuBudget(float cpuBudget) {
+        if (cpuBudget <= 0 || cpuBudget > 1) {
+            throw new IllegalArgumentException("cpuBudget must be in (0, 1]");
+        }
+        this.cpuBudget = cpuBudget;
+        return this;
+    }
+
+    /**
+     * 帧到达时调用：判断是否放行该帧进行分析
+     *
+     * @return 返回{@code true} 表示放行；返回{@code false} 时调用方应直接丢弃该帧
+     */
+    public synchronized boolean tryAdmit() {
+        long now = System.nanoTime();
+        sampleCpu(now);
+        if (now - nextAdmitTime < 0) {
+            skippedCount++;
+            return false;
+        }
+        nextAdmitTime = now + intervalNanos;
+        admittedCount++;
+        return true;
+    }
+
+    /**
+     * 包装放行帧的分析监听器，在返回结果时记录从放行到返回结果的耗时
+     *
+     * @param listener 分析监听器
+     * @return 包装后的分析监听器
+     */
+    @NonNull
+    public <T> Analyzer.OnAnalyzeListener<T> track(@NonNull Analyzer.OnAnalyzeListener<T> listener) {
+        long admitTime = System.nanoTime();
+        return new Analyzer.OnAnalyzeListener<T>() {
+            @Override
+            public void onSuccess(@NonNull AnalyzeResult<T> result) {
+                recordLatency(System.nanoTime() - admitTime);
+                listener.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(@Nullable Exception e) {
+                recordLatency(System.nanoTime() - admitTime);
+                listener.onFailure(e);
+            }
+
+            @Override
+            public void onSkipped() {
+                // 未经过检测，不计入分析耗时
+                recordReplaced();
+                listener.onSkipped();
+            }
+        };
+    }
+
+    /**
+     * 记录一帧的分析耗时
+     *
+     * @param latencyNanos 分析耗时（纳秒）
+     */
+    public synchronized void recordLatency(long latencyNanos) {
+        if (latencyNanos <= 0) {
+            return;
+        }
+        if (averageLatencyNanos == 0) {
+            averageLatencyNanos = latencyNanos;
+        } else {
+            averageLatencyNanos += (long) (LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos));
+        }
+        updateInterval();
+    }
+
+    /**
+     * 当前放行的目标帧率
+     */
+    public synchronized float getTargetFps() {
+        return intervalNanos > 0 ? TimeUnit.SECONDS.toNanos(1) / (float) intervalNanos : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * 平均分析耗时（纳秒）
+     */
+    public synchronized long getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+
+    /**
+     * 最近一次采样的进程CPU占用（占全部核心的比例）
+     */
+    public synchronized float getCpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * 放行的帧数
+     */
+    public synchronized long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    /**
+     * 丢弃的帧数
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * 放行后在检测前被更新的帧替换的帧数；持续增长说明放行过快
+     */
+    public synchronized long getReplacedCount() {
+        return replacedCount;
+    }
+
+    /**
+     * 清空测量数据，重新开始调节
+     */
+    public synchronized void reset() {
+        averageLatencyNanos = 0;
+        cpuBackoff = 1F;
+        cpuLoad = 0;
+        nextAdmitTime = 0;
+        lastCpuSampleTime = 0;
+        admittedCount = 0;
+        skippedCount = 0;
+        replacedCount = 0;
+        updateInterval();
+    }
+
+    private synchronized void recordReplaced() {
+        replacedCount++;
+    }
+
+    /**
+     * 周期性采样进程CPU占用，并据此调整退避系数
+     */
+    private void sampleCpu(long now) {
+        if (lastCpuSampleTime != 0 && now - lastCpuSampleTime < CPU_SAMPLE_PERIOD_NANOS) {
+            return;
+        }
+        long cpuTimeMillis = Process.getElapsedCpuTime();
+        if (lastCpuSampleTime != 0) {
+            long wallNanos = now - lastCpuSampleTime;
+            long cpuNanos = TimeUnit.MILLISECONDS.toNanos(cpuTimeMillis - lastCpuTimeMillis);
+            cpuLoad = cpuNanos / (float) (wallNanos * CPU_CORES);
+            if (cpuLoad > cpuBudget) {
+                cpuBackoff = Math.min(MAX_CPU_BACKOFF, cpuBackoff * CPU_BACKOFF_STEP);
+            } else {
+                cpuBackoff = Math.max(1F, cpuBackoff * CPU_RECOVER_STEP);
+            }
+            updateInterval();
+        }
+        lastCpuSampleTime = now;
+        lastCpuTimeMillis = cpuTimeMillis;
+    }
+
+    private void updateInterval() {
+        long interval = (long) (averageLatencyNanos / targetUtilization * cpuBackoff);
+        intervalNanos = Math.max(minIntervalNanos, Math.min(maxIntervalNanos, interval));
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "AnalysisGovernor{" +
+                "fps=" + getTargetFps() +
+                ", latency=" + TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos) + "ms" +
+                ", cpuLoad=" + cpuLoad +
+                ", admitted=" + admittedCount +
+                ", skipped=" + skippedCount +
+                ", replaced=" + replacedCount +
+                '}';
+    }
+}
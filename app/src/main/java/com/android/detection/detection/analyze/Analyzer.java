@@ -15,6 +15,22 @@ import com.android.detection.detection.AnalyzeResult;
  */
 @SuppressWarnings("unused")
 public interface Analyzer<T> {
+    /**
+     * {@link #analyze(byte[], OnAnalyzeListener)} 使用的帧的宽
+     */
+    @Deprecated
+    int LEGACY_WIDTH = 1920;
+    /**
+     * {@link #analyze(byte[], OnAnalyzeListener)} 使用的帧的高
+     */
+    @Deprecated
+    int LEGACY_HEIGHT = 1440;
+    /**
+     * {@link #analyze(byte[], OnAnalyzeListener)} 使用的旋转角度
+     */
+    @Deprecated
+    int LEGACY_ROTATION = 90;
+
     /**
      * 分析图像并将分析的结果通过分析监听器返回
      *
@@ -22,8 +38,44 @@ public interface Analyzer<T> {
      * @param listener   分析监听器，参见：{@link OnAnalyzeListener}
      */
     void analyze(@NonNull ImageProxy imageProxy, @NonNull OnAnalyzeListener<T> listener);
+
+    /**
+     * 分析图像并将分析的结果通过分析监听器返回
+     * <p>
+     * 图像仅在调用期间有效：方法返回后调用方会立即关闭图像，将缓冲区还给相机；需要异步分析时请在返回前复制图像数据。
+     *
+     * @param imageProxy 需要分析的图像
+     * @param listener   分析监听器，参见：{@link OnAnalyzeListener}
+     */
     void analyze(@NonNull Image imageProxy, @NonNull OnAnalyzeListener<T> listener);
-    void analyze(@NonNull byte[] data, @NonNull OnAnalyzeListener<T> listener);
+
+    /**
+     * 分析NV21图像帧数据，按 {@link #LEGACY_WIDTH}x{@link #LEGACY_HEIGHT}、旋转 {@link #LEGACY_ROTATION} 度处理
+     *
+     * @param data     图像帧数据
+     * @param listener 分析监听器，参见：{@link OnAnalyzeListener}
+     * @deprecated 帧数据不包含尺寸及旋转角度，请使用 {@link #analyze(byte[], int, int, int, Runnable, OnAnalyzeListener)}
+     */
+    @Deprecated
+    default void analyze(@NonNull byte[] data, @NonNull OnAnalyzeListener<T> listener) {
+        analyze(data, LEGACY_WIDTH, LEGACY_HEIGHT, LEGACY_ROTATION, null, listener);
+    }
+
+    /**
+     * 分析NV21图像帧数据，帧数据由调用方复用（如：Camera1的预览回调缓冲区）
+     * <p>
+     * 帧数据不再被使用时（未被分析、分析失败，或分析结果已全部释放）会执行 {@code releaseAction}，
+     * 调用方可在此时复用该帧数据；{@code releaseAction} 为空时表示帧数据交给分析器，调用方不再复用。
+     *
+     * @param data            图像帧数据
+     * @param width           帧的宽（如：Camera1协商后的预览尺寸）
+     * @param height          帧的高
+     * @param rotationDegrees 帧转正需要顺时针旋转的角度
+     * @param releaseAction   帧数据不再被使用时执行的动作
+     * @param listener        分析监听器，参见：{@link OnAnalyzeListener}
+     */
+    void analyze(@NonNull byte[] data, int width, int height, int rotationDegrees,
+                 @Nullable Runnable releaseAction, @NonNull OnAnalyzeListener<T> listener);
 
     /**
      * Analyze listener
@@ -41,8 +93,16 @@ public interface Analyzer<T> {
         /**
          * 失败
          *
-         * @param e 异常
+         * @param e 异常；未识别到结果时为{@code null}
          */
         void onFailure(@Nullable Exception e);
+
+        /**
+         * 帧在检测前被更新的帧替换而未检测；帧数据已回收，不会再回调 {@link #onSuccess}、{@link #onFailure}
+         * <p>
+         * 与未识别到结果不同，通常无需通知界面；默认不做处理。
+         */
+        default void onSkipped() {
+        }
     }
 }
@@ -1,6 +1,8 @@
 package com.android.detection.detection.analyze;
 
 import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.media.Image;
 
 import androidx.annotation.NonNull;
@@ -9,23 +11,113 @@ import androidx.camera.core.ImageProxy;
 
 import com.android.detection.detection.AnalyzeResult;
 import com.android.detection.detection.FrameMetadata;
+import com.android.detection.detection.util.FrameBufferPool;
 import com.android.detection.detection.util.ImageUtils;
 import com.google.android.gms.tasks.Task;
 import com.google.mlkit.vision.common.InputImage;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 通用分析器：将相机预览帧数据分析的通用业务进行统一处理，从而简化各子类的实现；（适用于MLKit各个字库）
+ * <p>
+ * 转换与检测按两级流水线执行：检测第N帧的同时，将新到达的帧转换到备用缓冲区中等待（只保留最新的一帧），
+ * 检测器空闲后立即提交，从而隐藏转换耗时；同一时刻最多只有一帧在检测。
+ * <p>
+ * 启用 {@link #setDirectBuffers(boolean)} 后，完整帧会转换到Java堆外的直接缓冲区并通过 {@link InputImage#fromByteBuffer} 检测，
+ * 避免长时间扫描时每帧数MB的数据给GC带来压力。
  */
 public abstract class CommonAnalyzer<T> implements Analyzer<T> {
 
-    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * 默认的检测结果回调线程：所有分析器共用一个后台线程，避免检测结果先切到主线程再投递到UI
+     */
+    private static final Executor DEFAULT_CALLBACK_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AnalyzeCallback");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 帧序号生成器：所有分析器共用，保证同一进程内帧序号单调递增
+     */
+    private static final AtomicLong SEQUENCE_GENERATOR = new AtomicLong();
+
+    /**
+     * 帧缓冲池：转换后的NV21数据从池中借用，未产生结果的帧会自动归还，
+     * 产生结果的帧在 {@link AnalyzeResult} 释放后归还
+     */
+    private final FrameBufferPool bufferPool = new FrameBufferPool();
+
+    /**
+     * 是否有帧正在检测
+     */
+    private final AtomicBoolean detecting = new AtomicBoolean(false);
+
+    /**
+     * 已转换、等待检测器空闲后提交的帧
+     */
+    private final AtomicReference<Frame<T>> pendingFrame = new AtomicReference<>();
+
+    /**
+     * YUV转换使用的线程池；为空时在分析线程上串行转换
+     */
+    @Nullable
+    private volatile ForkJoinPool conversionPool;
+
+    /**
+     * 检测结果回调执行器
+     */
+    @NonNull
+    private volatile Executor callbackExecutor = DEFAULT_CALLBACK_EXECUTOR;
+
+    /**
+     * 感兴趣区域：完整帧旋转后（正向）的归一化坐标；为空时分析完整帧
+     */
+    @Nullable
+    private volatile RectF regionOfInterest;
+
+    /**
+     * 分析图像的缩小倍数
+     */
+    private volatile int downscale = 1;
+
+    /**
+     * 完整帧是否转换到直接缓冲区
+     */
+    private volatile boolean directBuffers;
 
-    private final AtomicBoolean joinQueue = new AtomicBoolean(false);
+    /**
+     * 运动门限；为空时每帧都检测
+     */
+    @Nullable
+    private volatile MotionGate motionGate;
+
+    /**
+     * 上一次检测的结果，供运动门限跳过检测时沿用；为空表示上一次未识别到结果
+     * <p>
+     * 同一时刻只有一帧在检测，因此仅在检测流程中读写
+     */
+    @Nullable
+    private T lastResult;
+    /**
+     * 是否有可沿用的上一次检测结果（含未识别到的情况）
+     */
+    private boolean hasLastResult;
+
+    /**
+     * 正在调用 {@link #detectInImage(InputImage)} 的帧，供 {@link #retainFrame()} 使用；仅在检测流程中读写
+     */
+    @Nullable
+    private Frame<T> detectingFrame;
 
     /**
      * 检测图像
@@ -40,131 +132,468 @@ public abstract class CommonAnalyzer<T> implements Analyzer<T> {
 
     @Override
     public void analyze(@NonNull ImageProxy imageProxy, @NonNull OnAnalyzeListener<T> listener) {
-        if (!joinQueue.get()) {
-            int imageSize = imageProxy.getWidth() * imageProxy.getHeight();
-            byte[] bytes = new byte[imageSize + 2 * (imageSize / 4)];
-            queue.add(bytes);
-            joinQueue.set(true);
-        }
-        final byte[] nv21Data = queue.poll();
-        if (nv21Data == null) {
+        FrameMetadata frameMetadata = createFrameMetadata(
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees());
+        if (useDirectBuffer(frameMetadata)) {
+            ByteBuffer nv21Buffer = convertFrameDirect(frameMetadata, nv21 -> ImageUtils.yuv_420_888toNv21(imageProxy, nv21), listener);
+            if (nv21Buffer != null) {
+                submitFrame(new Frame<>(nv21Buffer, frameMetadata, () -> recycle(nv21Buffer, frameMetadata), listener));
+            }
             return;
         }
-        try {
-            ImageUtils.yuv_420_888toNv21(imageProxy, nv21Data);
-            InputImage inputImage = InputImage.fromByteArray(
-                    nv21Data,
-                    imageProxy.getWidth(),
-                    imageProxy.getHeight(),
-                    imageProxy.getImageInfo().getRotationDegrees(),
-                    InputImage.IMAGE_FORMAT_NV21
-            );
-            // 检测分析
-            detectInImage(inputImage).addOnSuccessListener(result -> {
-                if (isNullOrEmpty(result)) {
-                    joinQueue.set(false);
-                    listener.onFailure(null);
-                } else {
-                    FrameMetadata frameMetadata = new FrameMetadata(
-                            imageProxy.getWidth(),
-                            imageProxy.getHeight(),
-                            imageProxy.getImageInfo().getRotationDegrees());
-                    joinQueue.set(false);
-                    listener.onSuccess(new AnalyzeResult<>(nv21Data, ImageFormat.NV21, frameMetadata, result));
-                }
-            }).addOnFailureListener(e -> {
-                joinQueue.set(false);
-                listener.onFailure(e);
-            });
-        } catch (Exception e) {
-            joinQueue.set(false);
-            listener.onFailure(e);
+        Rect crop = frameMetadata.getCropRect();
+        int scale = frameMetadata.getScale();
+        byte[] nv21Data = convertFrame(frameMetadata, crop == null
+                ? nv21 -> ImageUtils.yuv_420_888toNv21(imageProxy, nv21, conversionPool)
+                : nv21 -> ImageUtils.yuv_420_888toNv21(imageProxy, crop, scale, nv21), listener);
+        if (nv21Data != null) {
+            submitFrame(new Frame<>(nv21Data, frameMetadata, () -> recycle(nv21Data, frameMetadata), listener));
         }
     }
 
     @Override
     public void analyze(@NonNull Image image, @NonNull OnAnalyzeListener<T> listener) {
-        if (!joinQueue.get()) {
-            int imageSize = image.getWidth() * image.getHeight();
-            byte[] bytes = new byte[imageSize + 2 * (imageSize / 4)];
-            queue.add(bytes);
-            joinQueue.set(true);
-        }
-        final byte[] nv21Data = queue.poll();
-        if (nv21Data == null) {
+        FrameMetadata frameMetadata = createFrameMetadata(image.getWidth(), image.getHeight(), 90);
+        if (useDirectBuffer(frameMetadata)) {
+            ByteBuffer nv21Buffer = convertFrameDirect(frameMetadata, nv21 -> ImageUtils.yuv_420_888toNv21(image, nv21), listener);
+            if (nv21Buffer != null) {
+                submitFrame(new Frame<>(nv21Buffer, frameMetadata, () -> recycle(nv21Buffer, frameMetadata), listener));
+            }
+            return;
+        }
+        Rect crop = frameMetadata.getCropRect();
+        int scale = frameMetadata.getScale();
+        byte[] nv21Data = convertFrame(frameMetadata, crop == null
+                ? nv21 -> ImageUtils.yuv_420_888toNv21(image, nv21, conversionPool)
+                : nv21 -> ImageUtils.yuv_420_888toNv21(image, crop, scale, nv21), listener);
+        if (nv21Data != null) {
+            submitFrame(new Frame<>(nv21Data, frameMetadata, () -> recycle(nv21Data, frameMetadata), listener));
+        }
+    }
+
+    @Override
+    public void analyze(@NonNull byte[] data, int width, int height, int rotationDegrees,
+                        @Nullable Runnable releaseAction, @NonNull OnAnalyzeListener<T> listener) {
+        if (data.length < width * height * 3 / 2) {
+            if (releaseAction != null) {
+                releaseAction.run();
+            }
+            listener.onFailure(new IllegalArgumentException("NV21 data is too small for " + width + "x" + height));
+            return;
+        }
+        FrameMetadata frameMetadata = createFrameMetadata(width, height, rotationDegrees);
+        Rect crop = frameMetadata.getCropRect();
+        if (crop == null) {
+            submitFrame(new Frame<>(data, frameMetadata, releaseAction, listener));
             return;
         }
+        // 裁剪（缩小）到帧缓冲池的缓冲区后，原帧数据即可归还给调用方
+        byte[] nv21Data = convertFrame(frameMetadata, nv21 -> ImageUtils.cropNv21(
+                data, frameMetadata.getSourceWidth(), frameMetadata.getSourceHeight(), crop, frameMetadata.getScale(), nv21), listener);
+        if (releaseAction != null) {
+            releaseAction.run();
+        }
+        if (nv21Data != null) {
+            submitFrame(new Frame<>(nv21Data, frameMetadata, () -> recycle(nv21Data, frameMetadata), listener));
+        }
+    }
+
+    /**
+     * 设置YUV转换使用的线程池；设置后高分辨率帧会按行分条并行转换，低分辨率帧仍串行转换
+     *
+     * @param pool 线程池，如：{@link ForkJoinPool#commonPool()}；为空时串行转换
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setConversionPool(@Nullable ForkJoinPool pool) {
+        this.conversionPool = pool;
+        return this;
+    }
+
+    /**
+     * 设置检测结果回调执行器：{@link OnAnalyzeListener} 将在该执行器上回调；默认为共用的后台线程
+     * <p>
+     * 回调中不应执行耗时操作，需要更新UI时请自行切换到主线程（如：{@link com.android.detection.detection.ResultDispatcher}）。
+     *
+     * @param executor 回调执行器
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setCallbackExecutor(@NonNull Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 设置感兴趣区域：只转换并检测该区域内的图像，检测结果会映射回完整帧的坐标（参见 {@link #transformResult(Object, FrameMetadata)}）
+     *
+     * @param roi 感兴趣区域，完整帧旋转后（正向）的归一化坐标（0~1）；为空时分析完整帧
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setRegionOfInterest(@Nullable RectF roi) {
+        this.regionOfInterest = roi == null ? null : new RectF(roi);
+        MotionGate gate = motionGate;
+        if (gate != null) {
+            gate.reset();
+        }
+        return this;
+    }
+
+    /**
+     * 设置分析图像的缩小倍数：转换时直接按块平均缩小Y及VU平面，检测更小的图像；
+     * 检测结果会映射回完整帧的坐标（参见 {@link #transformResult(Object, FrameMetadata)}），使用方无需处理
+     * <p>
+     * 检测器内部通常也会缩小输入图像，因此适当缩小（如：2倍）通常不影响检测效果，同时降低转换、复制及检测的耗时。
+     *
+     * @param scale 缩小倍数，如：2、4；为1时不缩小
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setDownscale(int scale) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("scale must be >= 1");
+        }
+        this.downscale = scale;
+        MotionGate gate = motionGate;
+        if (gate != null) {
+            gate.reset();
+        }
+        return this;
+    }
+
+    /**
+     * 设置是否将完整帧转换到直接缓冲区（{@link ByteBuffer#allocateDirect(int)}）：相机平面数据在Java堆外直接复制，
+     * 并通过 {@link InputImage#fromByteBuffer} 交给检测器，每帧数MB的数据不再占用Java堆
+     * <p>
+     * 仅对 {@link ImageProxy}、{@link Image} 的完整帧生效（不使用转换线程池）；
+     * 经过裁剪或缩小的帧本身已较小，Camera1的预览数据本身位于堆上，仍使用堆上的缓冲区。
+     * 此时 {@link AnalyzeResult#isDirect()} 为{@code true}，建议通过 {@link AnalyzeResult#getImageBuffer()} 访问图像数据。
+     *
+     * @param enabled 是否启用
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setDirectBuffers(boolean enabled) {
+        this.directBuffers = enabled;
+        return this;
+    }
+
+    /**
+     * 设置运动门限：画面与上一次检测的帧相比基本未变化时跳过检测，直接沿用上一次的检测结果
+     *
+     * @param gate 运动门限；为空时每帧都检测
+     * @return {@link CommonAnalyzer}
+     */
+    @NonNull
+    public CommonAnalyzer<T> setMotionGate(@Nullable MotionGate gate) {
+        this.motionGate = gate;
+        return this;
+    }
+
+    /**
+     * 获取帧缓冲池，可通过其命中/未命中次数来调整池的大小
+     *
+     * @return {@link FrameBufferPool}
+     */
+    @NonNull
+    public FrameBufferPool getFrameBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * 将检测结果映射回完整帧的坐标；仅在图像数据经过裁剪或缩小时调用
+     * <p>
+     * 检测结果的坐标为图像数据旋转后（正向）的坐标，子类可通过 {@link FrameMetadata#mapToSource(Rect)} 映射其中的区域；
+     * 默认不做处理。
+     *
+     * @param result        检测结果
+     * @param frameMetadata 帧元数据
+     * @return 映射后的检测结果
+     */
+    @NonNull
+    protected T transformResult(@NonNull T result, @NonNull FrameMetadata frameMetadata) {
+        return result;
+    }
+
+    /**
+     * 保留正在检测的帧数据：在返回的动作执行之前，即使检测任务已结束，帧数据也不会被回收（归还帧缓冲池或调用方）
+     * <p>
+     * 仅可在 {@link #detectInImage(InputImage)} 中调用，适用于检测任务结束后仍可能读取 {@link InputImage} 的情况
+     * （如：{@link CompositeAnalyzer} 中超时后仍在运行的子分析器）。不在检测流程中调用时
+     * （如：作为 {@link CompositeAnalyzer} 的子分析器）帧数据由外层分析器负责，返回空动作。
+     *
+     * @return 释放动作，必须执行且只会生效一次
+     */
+    @NonNull
+    protected final Runnable retainFrame() {
+        Frame<T> frame = detectingFrame;
+        if (frame == null) {
+            return () -> {
+            };
+        }
+        return frame.retain();
+    }
+
+    /**
+     * 根据感兴趣区域创建帧元数据
+     *
+     * @param width    完整帧的宽
+     * @param height   完整帧的高
+     * @param rotation 旋转角度
+     */
+    @NonNull
+    private FrameMetadata createFrameMetadata(int width, int height, int rotation) {
+        RectF roi = regionOfInterest;
+        int scale = downscale;
+        if (roi == null && scale == 1) {
+            return new FrameMetadata(width, height, rotation);
+        }
+        // 裁剪区域需与色度采样及缩小倍数对齐
+        int alignment = 2 * scale;
+        Rect crop = toCropRect(roi != null ? roi : new RectF(0, 0, 1, 1), width, height, rotation, alignment);
+        if (crop == null || (scale == 1 && crop.width() == width && crop.height() == height)) {
+            return new FrameMetadata(width, height, rotation);
+        }
+        return new FrameMetadata(width, height, rotation, crop, scale);
+    }
+
+    /**
+     * 将正向的归一化感兴趣区域转换为传感器坐标的裁剪区域，并按 {@code alignment} 对齐
+     *
+     * @return 裁剪区域；区域为空时返回{@code null}
+     */
+    @Nullable
+    private static Rect toCropRect(@NonNull RectF roi, int width, int height, int rotation, int alignment) {
+        float left;
+        float top;
+        float right;
+        float bottom;
+        switch (((rotation % 360) + 360) % 360) {
+            case 90:
+                left = roi.top;
+                top = 1 - roi.right;
+                right = roi.bottom;
+                bottom = 1 - roi.left;
+                break;
+            case 180:
+                left = 1 - roi.right;
+                top = 1 - roi.bottom;
+                right = 1 - roi.left;
+                bottom = 1 - roi.top;
+                break;
+            case 270:
+                left = 1 - roi.bottom;
+                top = roi.left;
+                right = 1 - roi.top;
+                bottom = roi.right;
+                break;
+            default:
+                left = roi.left;
+                top = roi.top;
+                right = roi.right;
+                bottom = roi.bottom;
+                break;
+        }
+        Rect crop = new Rect(
+                alignDown(left * width, alignment),
+                alignDown(top * height, alignment),
+                alignUp(right * width, width, alignment),
+                alignUp(bottom * height, height, alignment));
+        return crop.isEmpty() ? null : crop;
+    }
+
+    private static int alignDown(float value, int alignment) {
+        int aligned = (int) Math.floor(value) / alignment * alignment;
+        return Math.max(0, aligned);
+    }
+
+    private static int alignUp(float value, int max, int alignment) {
+        int aligned = ((int) Math.ceil(value) + alignment - 1) / alignment * alignment;
+        return Math.min(max / alignment * alignment, aligned);
+    }
+
+    /**
+     * 从帧缓冲池借用缓冲区并转换为NV21
+     *
+     * @return NV21帧数据；转换失败时返回{@code null}，此时已回调失败
+     */
+    @Nullable
+    private byte[] convertFrame(@NonNull FrameMetadata frameMetadata, @NonNull YuvConverter converter, @NonNull OnAnalyzeListener<T> listener) {
+        byte[] nv21Data = bufferPool.acquire(frameMetadata.getWidth(), frameMetadata.getHeight(), ImageFormat.NV21);
         try {
-            ImageUtils.yuv_420_888toNv21(image, nv21Data);
-            InputImage inputImage = InputImage.fromByteArray(
-                    nv21Data,
-                    image.getWidth(),
-                    image.getHeight(),
-                    90,
-                    InputImage.IMAGE_FORMAT_NV21
-            );
-            // 检测分析
-            detectInImage(inputImage).addOnSuccessListener(result -> {
-                if (isNullOrEmpty(result)) {
-                    joinQueue.set(false);
-                    listener.onFailure(null);
-                } else {
-                    FrameMetadata frameMetadata = new FrameMetadata(
-                            image.getWidth(),
-                            image.getHeight(),
-                            90);
-                    joinQueue.set(false);
-                    listener.onSuccess(new AnalyzeResult<>(nv21Data, ImageFormat.NV21, frameMetadata, result));
-                }
-            }).addOnFailureListener(e -> {
-                joinQueue.set(false);
-                listener.onFailure(e);
-            });
+            converter.convert(nv21Data);
         } catch (Exception e) {
-            joinQueue.set(false);
+            recycle(nv21Data, frameMetadata);
             listener.onFailure(e);
+            return null;
         }
+        return nv21Data;
     }
 
-    @Override
-    public void analyze(@NonNull byte[] data, @NonNull OnAnalyzeListener<T> listener) {
-        if (!joinQueue.get()) joinQueue.set(true);
-        else return;
+    private boolean useDirectBuffer(@NonNull FrameMetadata frameMetadata) {
+        return directBuffers && !frameMetadata.isTransformed();
+    }
+
+    /**
+     * 从帧缓冲池借用直接缓冲区并转换为NV21
+     *
+     * @return NV21帧数据；转换失败时返回{@code null}，此时已回调失败
+     */
+    @Nullable
+    private ByteBuffer convertFrameDirect(@NonNull FrameMetadata frameMetadata, @NonNull DirectYuvConverter converter, @NonNull OnAnalyzeListener<T> listener) {
+        ByteBuffer nv21Buffer = bufferPool.acquireDirect(frameMetadata.getWidth(), frameMetadata.getHeight(), ImageFormat.NV21);
         try {
-            InputImage inputImage = InputImage.fromByteArray(
-                    data,
-                    1920,
-                    1440,
-                    90,
-                    InputImage.IMAGE_FORMAT_NV21
-            );
+            converter.convert(nv21Buffer);
+        } catch (Exception e) {
+            recycle(nv21Buffer, frameMetadata);
+            listener.onFailure(e);
+            return null;
+        }
+        return nv21Buffer;
+    }
+
+    /**
+     * 提交帧：检测器空闲时立即检测，否则作为待检测帧等待（替换掉尚未提交的旧帧，旧帧回调 {@link OnAnalyzeListener#onSkipped()}）
+     */
+    private void submitFrame(@NonNull Frame<T> frame) {
+        if (detecting.compareAndSet(false, true)) {
+            detectFrame(frame);
+            return;
+        }
+        Frame<T> replaced = pendingFrame.getAndSet(frame);
+        if (replaced != null) {
+            // 被替换的帧不再检测，单独回调，调用方（如：分析频率调节器）的计数才能与放行的帧一一对应
+            replaced.recycle();
+            callbackExecutor.execute(replaced.listener::onSkipped);
+        }
+        // 检测可能恰好在此期间结束
+        submitPendingFrame();
+    }
+
+    /**
+     * 检测器空闲时提交待检测帧
+     */
+    private void submitPendingFrame() {
+        while (pendingFrame.get() != null && detecting.compareAndSet(false, true)) {
+            Frame<T> frame = pendingFrame.getAndSet(null);
+            if (frame != null) {
+                detectFrame(frame);
+                return;
+            }
+            detecting.set(false);
+        }
+    }
+
+    /**
+     * 当前帧检测结束：释放检测器并提交待检测帧
+     */
+    private void onDetectFinished() {
+        detecting.set(false);
+        submitPendingFrame();
+    }
+
+    /**
+     * 检测NV21帧数据并回调结果；帧数据未产生结果时立即回收，否则在分析结果释放后回收
+     *
+     * @param frame 待检测的帧
+     */
+    private void detectFrame(@NonNull Frame<T> frame) {
+        OnAnalyzeListener<T> listener = frame.listener;
+        MotionGate gate = motionGate;
+        if (gate != null && hasLastResult && frame.shouldSkip(gate)) {
+            emitLastResult(frame);
+            return;
+        }
+        try {
+            InputImage inputImage = frame.toInputImage();
             // 检测分析
-            detectInImage(inputImage).addOnSuccessListener(result -> {
-                if (isNullOrEmpty(result)) {
-                    joinQueue.set(false);
+            Executor executor = callbackExecutor;
+            Task<T> task;
+            detectingFrame = frame;
+            try {
+                task = detectInImage(inputImage);
+            } finally {
+                detectingFrame = null;
+            }
+            task.addOnSuccessListener(executor, detected -> {
+                boolean empty = isNullOrEmpty(detected);
+                T result = empty || !frame.frameMetadata.isTransformed() ? detected : transformResult(detected, frame.frameMetadata);
+                lastResult = empty ? null : result;
+                hasLastResult = true;
+                onDetectFinished();
+                if (empty) {
+                    frame.recycle();
                     listener.onFailure(null);
                 } else {
-                    FrameMetadata frameMetadata = new FrameMetadata(
-                            1920,
-                            1440,
-                            90);
-                    joinQueue.set(false);
-                    listener.onSuccess(new AnalyzeResult<>(data, ImageFormat.NV21, frameMetadata, result));
+                    listener.onSuccess(frame.toResult(result));
                 }
-            }).addOnFailureListener(e -> {
-                joinQueue.set(false);
+            }).addOnFailureListener(executor, e -> {
+                clearLastResult();
+                frame.recycle();
+                onDetectFinished();
                 listener.onFailure(e);
             });
         } catch (Exception e) {
-            joinQueue.set(false);
+            clearLastResult();
+            frame.recycle();
+            onDetectFinished();
             listener.onFailure(e);
         }
     }
 
     /**
-     * 是否为空
+     * 跳过检测：将上一次的检测结果附在当前帧上回调
+     *
+     * @param frame 跳过检测的帧
      */
-    private boolean isNullOrEmpty(@Nullable Object obj) {
+    private void emitLastResult(@NonNull Frame<T> frame) {
+        T result = lastResult;
+        callbackExecutor.execute(() -> {
+            onDetectFinished();
+            if (result == null) {
+                frame.recycle();
+                frame.listener.onFailure(null);
+            } else {
+                frame.listener.onSuccess(frame.toResult(result));
+            }
+        });
+    }
+
+    /**
+     * 清除上一次的检测结果，下一帧必定检测
+     */
+    private void clearLastResult() {
+        lastResult = null;
+        hasLastResult = false;
+        MotionGate gate = motionGate;
+        if (gate != null) {
+            gate.reset();
+        }
+    }
+
+    /**
+     * 将帧数据归还到帧缓冲池
+     */
+    private void recycle(@NonNull byte[] nv21Data, @NonNull FrameMetadata frameMetadata) {
+        bufferPool.release(frameMetadata.getWidth(), frameMetadata.getHeight(), ImageFormat.NV21, nv21Data);
+    }
+
+    /**
+     * 将直接缓冲区归还到帧缓冲池
+     */
+    private void recycle(@NonNull ByteBuffer nv21Buffer, @NonNull FrameMetadata frameMetadata) {
+        bufferPool.releaseDirect(frameMetadata.getWidth(), frameMetadata.getHeight(), ImageFormat.NV21, nv21Buffer);
+    }
+
+    /**
+     * 是否为空：为空的结果按未识别到处理
+     * <p>
+     * 默认将{@code null}及空集合视为空，子类可按结果类型重写
+     */
+    protected boolean isNullOrEmpty(@Nullable Object obj) {
         if (obj == null) {
             return true;
         }
@@ -173,4 +602,116 @@ public abstract class CommonAnalyzer<T> implements Analyzer<T> {
         }
         return false;
     }
+
+    /**
+     * YUV转换
+     */
+    private interface YuvConverter {
+        /**
+         * 将图像转换为NV21写入指定缓冲区
+         *
+         * @param nv21 NV21 format bytes
+         */
+        void convert(@NonNull byte[] nv21);
+    }
+
+    /**
+     * YUV转换：写入直接缓冲区
+     */
+    private interface DirectYuvConverter {
+        /**
+         * 将图像转换为NV21写入指定直接缓冲区
+         *
+         * @param nv21 NV21 format direct buffer
+         */
+        void convert(@NonNull ByteBuffer nv21);
+    }
+
+    /**
+     * 已转换的帧：数据位于堆上的数组或直接缓冲区中
+     */
+    private static final class Frame<T> {
+        @Nullable
+        private final byte[] nv21Data;
+        @Nullable
+        private final ByteBuffer nv21Buffer;
+        private final FrameMetadata frameMetadata;
+        @Nullable
+        private final Runnable releaseAction;
+        private final OnAnalyzeListener<T> listener;
+        private final long sequence = SEQUENCE_GENERATOR.incrementAndGet();
+        /**
+         * 帧数据的引用计数：帧本身（或由其产生的分析结果）持有一个，{@link #retain()} 各持有一个
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Frame(@NonNull byte[] nv21Data, @NonNull FrameMetadata frameMetadata, @Nullable Runnable releaseAction, @NonNull OnAnalyzeListener<T> listener) {
+            this.nv21Data = nv21Data;
+            this.nv21Buffer = null;
+            this.frameMetadata = frameMetadata;
+            this.releaseAction = releaseAction;
+            this.listener = listener;
+        }
+
+        Frame(@NonNull ByteBuffer nv21Buffer, @NonNull FrameMetadata frameMetadata, @Nullable Runnable releaseAction, @NonNull OnAnalyzeListener<T> listener) {
+            this.nv21Data = null;
+            this.nv21Buffer = nv21Buffer;
+            this.frameMetadata = frameMetadata;
+            this.releaseAction = releaseAction;
+            this.listener = listener;
+        }
+
+        boolean shouldSkip(@NonNull MotionGate gate) {
+            int width = frameMetadata.getWidth();
+            int height = frameMetadata.getHeight();
+            return nv21Buffer != null
+                    ? gate.shouldSkip(nv21Buffer, width, height)
+                    : gate.shouldSkip(nv21Data, width, height);
+        }
+
+        @NonNull
+        InputImage toInputImage() {
+            int width = frameMetadata.getWidth();
+            int height = frameMetadata.getHeight();
+            int rotation = frameMetadata.getRotation();
+            if (nv21Buffer != null) {
+                return InputImage.fromByteBuffer(nv21Buffer, width, height, rotation, InputImage.IMAGE_FORMAT_NV21);
+            }
+            return InputImage.fromByteArray(nv21Data, width, height, rotation, InputImage.IMAGE_FORMAT_NV21);
+        }
+
+        @NonNull
+        AnalyzeResult<T> toResult(@NonNull T result) {
+            // 帧本身的引用转交给分析结果
+            if (nv21Buffer != null) {
+                return new AnalyzeResult<>(nv21Buffer, ImageFormat.NV21, frameMetadata, result, this::recycle, sequence);
+            }
+            return new AnalyzeResult<>(nv21Data, ImageFormat.NV21, frameMetadata, result, this::recycle, sequence);
+        }
+
+        /**
+         * 增加一个引用
+         *
+         * @return 释放该引用的动作，多次执行只生效一次
+         */
+        @NonNull
+        Runnable retain() {
+            references.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true)) {
+                    recycle();
+                }
+            };
+        }
+
+        /**
+         * 释放一个引用；全部引用释放后回收帧数据
+         */
+        void recycle() {
+            if (references.decrementAndGet() == 0 && releaseAction != null) {
+                releaseAction.run();
+            }
+        }
+    }
 }
@@ -0,0 +1,265 @@
+package com.android.detection.detection.analyze;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.detection.detection.FrameMetadata;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 组合分析器：每帧只转换一次，将同一帧并行交给多个子分析器检测，并将各自的结果合并为一个 {@link CompositeResult}
+ * <p>
+ * 各子分析器共享同一份只读的帧数据，每个子分析器可单独设置超时；超时或失败的子分析器不影响其他子分析器的结果。
+ * 超时的子分析器可能仍在后台运行，其迟到的结果会被丢弃；帧数据会保留到所有子分析器都结束后才回收。
+ * <pre>{@code
+ * ObjectDetectionAnalyzer objectAnalyzer = new ObjectDetectionAnalyzer();
+ * CompositeAnalyzer analyzer = new CompositeAnalyzer()
+ *         .addAnalyzer(objectAnalyzer, 500)
+ *         .addAnalyzer(otherAnalyzer, 300);
+ * // 结果回调中
+ * List<DetectedObject> objects = result.getResult().get(objectAnalyzer);
+ * }</pre>
+ */
+@SuppressWarnings("unused")
+public class CompositeAnalyzer extends CommonAnalyzer<CompositeResult> {
+
+    /**
+     * 子分析器默认的超时时间（毫秒）
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * 默认的子分析器执行器：各子分析器的 {@link CommonAnalyzer#detectInImage(InputImage)} 在此并行调用
+     */
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("CompositeAnalyzer"));
+
+    /**
+     * 超时计时器
+     */
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("CompositeAnalyzerTimeout"));
+
+    /**
+     * 在完成任务的线程上直接执行
+     */
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    private final List<Child> children = new CopyOnWriteArrayList<>();
+
+    @NonNull
+    private volatile Executor executor = DEFAULT_EXECUTOR;
+
+    /**
+     * 添加子分析器，使用默认的超时时间：{@link #DEFAULT_TIMEOUT_MILLIS}
+     *
+     * @param analyzer 子分析器
+     * @return {@link CompositeAnalyzer}
+     */
+    @NonNull
+    public CompositeAnalyzer addAnalyzer(@NonNull CommonAnalyzer<?> analyzer) {
+        return addAnalyzer(analyzer, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 添加子分析器
+     *
+     * @param analyzer      子分析器
+     * @param timeoutMillis 超时时间（毫秒），超时后该子分析器的结果视为失败
+     * @return {@link CompositeAnalyzer}
+     */
+    @NonNull
+    public CompositeAnalyzer addAnalyzer(@NonNull CommonAnalyzer<?> analyzer, long timeoutMillis) {
+        if (analyzer == this) {
+            throw new IllegalArgumentException("CompositeAnalyzer cannot contain itself.");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be > 0");
+        }
+        removeAnalyzer(analyzer);
+        children.add(new Child(analyzer, timeoutMillis));
+        return this;
+    }
+
+    /**
+     * 移除子分析器
+     *
+     * @param analyzer 子分析器
+     * @return {@link CompositeAnalyzer}
+     */
+    @NonNull
+    public CompositeAnalyzer removeAnalyzer(@NonNull CommonAnalyzer<?> analyzer) {
+        for (Child child : children) {
+            if (child.analyzer == analyzer) {
+                children.remove(child);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 设置子分析器执行器；默认为共用的线程池
+     *
+     * @param executor 子分析器执行器
+     * @return {@link CompositeAnalyzer}
+     */
+    @NonNull
+    public CompositeAnalyzer setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    protected Task<CompositeResult> detectInImage(@NonNull InputImage inputImage) {
+        List<Child> snapshot = new ArrayList<>(children);
+        List<Task<Object>> tasks = new ArrayList<>(snapshot.size());
+        // 超时的子分析器仍在读取帧数据，所有子分析器结束后才释放
+        Runnable release = retainFrame();
+        AtomicInteger running = new AtomicInteger(snapshot.size());
+        Runnable onChildFinished = () -> {
+            if (running.decrementAndGet() == 0) {
+                release.run();
+            }
+        };
+        if (snapshot.isEmpty()) {
+            release.run();
+        }
+        for (Child child : snapshot) {
+            tasks.add(detectWithTimeout(child, inputImage, onChildFinished));
+        }
+        return Tasks.whenAllComplete(tasks).continueWith(DIRECT_EXECUTOR, task -> {
+            Map<CommonAnalyzer<?>, Object> results = new LinkedHashMap<>();
+            Map<CommonAnalyzer<?>, Exception> errors = new LinkedHashMap<>();
+            for (int i = 0; i < snapshot.size(); i++) {
+                CommonAnalyzer<?> analyzer = snapshot.get(i).analyzer;
+                Task<Object> childTask = tasks.get(i);
+                if (childTask.isSuccessful()) {
+                    Object result = childTask.getResult();
+                    if (!analyzer.isNullOrEmpty(result)) {
+                        results.put(analyzer, result);
+                    }
+                } else if (childTask.getException() != null) {
+                    errors.put(analyzer, childTask.getException());
+                }
+            }
+            return new CompositeResult(results, errors);
+        });
+    }
+
+    @NonNull
+    @Override
+    protected CompositeResult transformResult(@NonNull CompositeResult result, @NonNull FrameMetadata frameMetadata) {
+        Map<CommonAnalyzer<?>, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<CommonAnalyzer<?>, Object> entry : result.getResults().entrySet()) {
+            results.put(entry.getKey(), transformChildResult(entry.getKey(), entry.getValue(), frameMetadata));
+        }
+        return new CompositeResult(results, result.getErrors());
+    }
+
+    @Override
+    protected boolean isNullOrEmpty(@Nullable Object obj) {
+        if (obj instanceof CompositeResult) {
+            return ((CompositeResult) obj).isEmpty();
+        }
+        return super.isNullOrEmpty(obj);
+    }
+
+    /**
+     * 在执行器上调用子分析器检测，超时后以 {@link TimeoutException} 结束
+     *
+     * @param onFinished 子分析器实际结束（含超时后才结束）时执行
+     */
+    @NonNull
+    private Task<Object> detectWithTimeout(@NonNull Child child, @NonNull InputImage inputImage, @NonNull Runnable onFinished) {
+        TaskCompletionSource<Object> source = new TaskCompletionSource<>();
+        ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(
+                () -> source.trySetException(new TimeoutException(child.analyzer.getClass().getSimpleName()
+                        + " timed out after " + child.timeoutMillis + "ms")),
+                child.timeoutMillis,
+                TimeUnit.MILLISECONDS);
+        Task<Task<?>> detectTask;
+        try {
+            detectTask = Tasks.call(executor, () -> child.analyzer.detectInImage(inputImage));
+        } catch (RuntimeException e) {
+            // 执行器拒绝执行：子分析器未读取帧数据
+            timeout.cancel(false);
+            onFinished.run();
+            return Tasks.forException(e);
+        }
+        detectTask
+                .continueWithTask(DIRECT_EXECUTOR, task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException() != null ? task.getException() : new IllegalStateException());
+                    }
+                    return castTask(task.getResult());
+                })
+                .addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+                    timeout.cancel(false);
+                    if (task.isSuccessful()) {
+                        source.trySetResult(task.getResult());
+                    } else {
+                        source.trySetException(task.getException() != null ? task.getException() : new IllegalStateException());
+                    }
+                    onFinished.run();
+                });
+        return source.getTask();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> Object transformChildResult(@NonNull CommonAnalyzer<R> analyzer, @NonNull Object result, @NonNull FrameMetadata frameMetadata) {
+        return analyzer.transformResult((R) result, frameMetadata);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Task<Object> castTask(@NonNull Task<?> task) {
+        return (Task<Object>) task;
+    }
+
+    /**
+     * 子分析器
+     */
+    private static final class Child {
+        private final CommonAnalyzer<?> analyzer;
+        private final long timeoutMillis;
+
+        Child(@NonNull CommonAnalyzer<?> analyzer, long timeoutMillis) {
+            this.analyzer = analyzer;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    /**
+     * 守护线程工厂
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(@NonNull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.android.detection.detection.analyze;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 组合分析结果：{@link CompositeAnalyzer} 中各个子分析器对同一帧的分析结果
+ */
+@SuppressWarnings("unused")
+public class CompositeResult {
+
+    private final Map<CommonAnalyzer<?>, Object> results;
+    private final Map<CommonAnalyzer<?>, Exception> errors;
+
+    CompositeResult(@NonNull Map<CommonAnalyzer<?>, Object> results, @NonNull Map<CommonAnalyzer<?>, Exception> errors) {
+        this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+        this.errors = Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+    }
+
+    /**
+     * 获取子分析器的分析结果
+     *
+     * @param analyzer 子分析器
+     * @return 分析结果；子分析器未识别到结果、分析失败或超时时返回{@code null}
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <R> R get(@NonNull CommonAnalyzer<R> analyzer) {
+        return (R) results.get(analyzer);
+    }
+
+    /**
+     * 获取子分析器分析失败的原因
+     *
+     * @param analyzer 子分析器
+     * @return 失败原因；超时为 {@link TimeoutException}；未失败时返回{@code null}
+     */
+    @Nullable
+    public Exception getError(@NonNull CommonAnalyzer<?> analyzer) {
+        return errors.get(analyzer);
+    }
+
+    /**
+     * 子分析器是否超时
+     *
+     * @param analyzer 子分析器
+     * @return 返回{@code true} 表示超时
+     */
+    public boolean isTimedOut(@NonNull CommonAnalyzer<?> analyzer) {
+        return errors.get(analyzer) instanceof TimeoutException;
+    }
+
+    /**
+     * 产生了分析结果的子分析器
+     */
+    @NonNull
+    public Collection<CommonAnalyzer<?>> getAnalyzers() {
+        return results.keySet();
+    }
+
+    @NonNull
+    Map<CommonAnalyzer<?>, Object> getResults() {
+        return results;
+    }
+
+    @NonNull
+    Map<CommonAnalyzer<?>, Exception> getErrors() {
+        return errors;
+    }
+
+    /**
+     * 是否所有子分析器都没有分析结果
+     */
+    public boolean isEmpty() {
+        return results.isEmpty();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CompositeResult{" +
+                "results=" + results +
+                ", errors=" + errors +
+                '}';
+    }
+}
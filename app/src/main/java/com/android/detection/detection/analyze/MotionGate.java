@@ -0,0 +1,235 @@
+package com.android.detection.detection.analyze;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 运动门限：检测前对NV21帧的Y平面做稀疏采样，与上一次实际检测的帧比较平均绝对差（SAD），
+ * 画面基本不变时跳过检测，直接沿用上一次的检测结果
+ * <p>
+ * 为避免长时间沿用旧结果，连续跳过的帧数达到上限后会强制检测一次。
+ */
+@SuppressWarnings("unused")
+public class MotionGate {
+
+    /**
+     * 默认采样步长（像素）
+     */
+    public static final int DEFAULT_SAMPLE_STEP = 8;
+    /**
+     * 默认阈值：每个采样点的平均绝对差（0~255）
+     */
+    public static final float DEFAULT_THRESHOLD = 4F;
+    /**
+     * 默认最多连续跳过的帧数
+     */
+    public static final int DEFAULT_MAX_SKIP_FRAMES = 15;
+
+    private int sampleStep = DEFAULT_SAMPLE_STEP;
+    private float threshold = DEFAULT_THRESHOLD;
+    private int maxSkipFrames = DEFAULT_MAX_SKIP_FRAMES;
+
+    /**
+     * 上一次实际检测的帧的采样点
+     */
+    private byte[] reference;
+    private int referenceWidth;
+    private int referenceHeight;
+    private int referenceStep;
+
+    private byte[] samples;
+
+    private int skippedFrames;
+    private float lastDifference;
+
+    private long skippedCount;
+    private long passedCount;
+
+    /**
+     * 设置采样步长：在横、纵方向上每隔多少像素采样一个点；越大越快，但对小物体的运动越不敏感
+     *
+     * @param sampleStep 采样步长
+     * @return {@link MotionGate}
+     */
+    @NonNull
+    public synchronized MotionGate setSampleStep(int sampleStep) {
+        if (sampleStep <= 0) {
+            throw new IllegalArgumentException("sampleStep must be > 0");
+        }
+        this.sampleStep = sampleStep;
+        return this;
+    }
+
+    /**
+     * 设置阈值：每个采样点的平均绝对差低于此值时视为画面未变化
+     *
+     * @param threshold 阈值（0~255）
+     * @return {@link MotionGate}
+     */
+    @NonNull
+    public synchronized MotionGate setThreshold(float threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must be >= 0");
+        }
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * 设置最多连续跳过的帧数，达到后强制检测一次
+     *
+     * @param maxSkipFrames 最多连续跳过的帧数；为0时不跳过任何帧
+     * @return {@link MotionGate}
+     */
+    @NonNull
+    public synchronized MotionGate setMaxSkipFrames(int maxSkipFrames) {
+        if (maxSkipFrames < 0) {
+            throw new IllegalArgumentException("maxSkipFrames must be >= 0");
+        }
+        this.maxSkipFrames = maxSkipFrames;
+        return this;
+    }
+
+    /**
+     * 判断帧是否可以跳过检测；不可跳过时，该帧会作为之后比较的参考帧
+     *
+     * @param nv21   NV21帧数据
+     * @param width  帧的宽
+     * @param height 帧的高
+     * @return 返回{@code true} 表示画面与上一次检测的帧相比基本未变化，可跳过检测
+     */
+    public synchronized boolean shouldSkip(@NonNull byte[] nv21, int width, int height) {
+        int step = sampleStep;
+        sample(nv21, width, height, step, obtainSamples(width, height, step));
+        return compareWithReference(width, height, step);
+    }
+
+    /**
+     * 判断帧是否可以跳过检测，参见 {@link #shouldSkip(byte[], int, int)}
+     *
+     * @param nv21   NV21帧数据（如：直接缓冲区），按绝对位置读取，不改变其位置
+     * @param width  帧的宽
+     * @param height 帧的高
+     * @return 返回{@code true} 表示画面与上一次检测的帧相比基本未变化，可跳过检测
+     */
+    public synchronized boolean shouldSkip(@NonNull ByteBuffer nv21, int width, int height) {
+        int step = sampleStep;
+        sample(nv21, width, height, step, obtainSamples(width, height, step));
+        return compareWithReference(width, height, step);
+    }
+
+    @NonNull
+    private byte[] obtainSamples(int width, int height, int step) {
+        int count = ((width + step - 1) / step) * ((height + step - 1) / step);
+        if (samples == null || samples.length != count) {
+            samples = new byte[count];
+        }
+        return samples;
+    }
+
+    /**
+     * 将当前采样点与参考帧比较；不可跳过时，当前采样点成为新的参考帧
+     */
+    private boolean compareWithReference(int width, int height, int step) {
+        int count = samples.length;
+        boolean comparable = reference != null
+                && referenceWidth == width
+                && referenceHeight == height
+                && referenceStep == step;
+        if (comparable && skippedFrames < maxSkipFrames) {
+            lastDifference = meanAbsoluteDifference(samples, reference, count);
+            if (lastDifference < threshold) {
+                skippedFrames++;
+                skippedCount++;
+                return true;
+            }
+        }
+        // 作为新的参考帧
+        byte[] swap = reference;
+        reference = samples;
+        samples = swap != null && swap.length == count ? swap : null;
+        referenceWidth = width;
+        referenceHeight = height;
+        referenceStep = step;
+        skippedFrames = 0;
+        passedCount++;
+        return false;
+    }
+
+    /**
+     * 清除参考帧，下一帧必定检测
+     */
+    public synchronized void reset() {
+        reference = null;
+        skippedFrames = 0;
+    }
+
+    /**
+     * 最近一次比较的平均绝对差
+     */
+    public synchronized float getLastDifference() {
+        return lastDifference;
+    }
+
+    /**
+     * 跳过检测的帧数
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * 实际检测的帧数
+     */
+    public synchronized long getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * 按步长对Y平面采样
+     */
+    private static void sample(@NonNull byte[] nv21, int width, int height, int step, @NonNull byte[] out) {
+        int index = 0;
+        for (int y = 0; y < height; y += step) {
+            int offset = y * width;
+            for (int x = 0; x < width; x += step) {
+                out[index++] = nv21[offset + x];
+            }
+        }
+    }
+
+    /**
+     * 按步长对Y平面采样
+     */
+    private static void sample(@NonNull ByteBuffer nv21, int width, int height, int step, @NonNull byte[] out) {
+        int index = 0;
+        for (int y = 0; y < height; y += step) {
+            int offset = y * width;
+            for (int x = 0; x < width; x += step) {
+                out[index++] = nv21.get(offset + x);
+            }
+        }
+    }
+
+    /**
+     * 计算两组采样点的平均绝对差
+     */
+    private static float meanAbsoluteDifference(@NonNull byte[] a, @NonNull byte[] b, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        return sum / (float) count;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "MotionGate{" +
+                "skipped=" + skippedCount +
+                ", passed=" + passedCount +
+                ", lastDifference=" + lastDifference +
+                '}';
+    }
+}
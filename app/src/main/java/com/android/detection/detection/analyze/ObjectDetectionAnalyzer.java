@@ -1,7 +1,10 @@
 package com.android.detection.detection.analyze;
 
+import android.graphics.Rect;
+
 import androidx.annotation.NonNull;
 
+import com.android.detection.detection.FrameMetadata;
 import com.google.android.gms.tasks.Task;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.objects.DetectedObject;
@@ -10,6 +13,7 @@ import com.google.mlkit.vision.objects.ObjectDetector;
 import com.google.mlkit.vision.objects.ObjectDetectorOptionsBase;
 import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -47,4 +51,15 @@ public class ObjectDetectionAnalyzer extends CommonAnalyzer<List<DetectedObject>
     protected Task<List<DetectedObject>> detectInImage(@NonNull InputImage inputImage) {
         return mDetector.process(inputImage);
     }
+
+    @NonNull
+    @Override
+    protected List<DetectedObject> transformResult(@NonNull List<DetectedObject> result, @NonNull FrameMetadata frameMetadata) {
+        List<DetectedObject> objects = new ArrayList<>(result.size());
+        for (DetectedObject object : result) {
+            Rect bounds = frameMetadata.mapToSource(object.getBoundingBox());
+            objects.add(new DetectedObject(bounds, object.getTrackingId(), object.getLabels()));
+        }
+        return objects;
+    }
 }
@@ -0,0 +1,448 @@
+package com.android.detection.detection.capture;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自动拍照引擎：跟踪的目标连续多次分析都位于取景框内且检测框基本不动时自动触发拍照，无需人工点击
+ * <p>
+ * 每次分析后通过 {@link #update(Rect, Integer, long, long)} 传入检测框，满足以下条件时触发：
+ * <ul>
+ *     <li>同一跟踪ID的检测框连续 {@link #setStableFrames(int) K} 次位于取景框内；</li>
+ *     <li>相邻两次检测框的抖动（中心及宽高的变化相对于检测框尺寸的比例）均不超过 {@link #setJitterThreshold(float) 阈值}；</li>
+ *     <li>稳定状态已持续 {@link #setDebounceMillis(long) 防抖时长}；</li>
+ *     <li>距上一次触发已超过 {@link #setCooldownMillis(long) 冷却时长}，且上一次拍摄的目标已离开取景框（或已换成新的目标）。</li>
+ * </ul>
+ * 从目标进入取景框到触发拍照的时长计入 {@link Metrics}，用于评估产线的拍照节拍。
+ */
+@SuppressWarnings("unused")
+public class AutoCaptureEngine {
+
+    /**
+     * 默认连续稳定的分析次数
+     */
+    public static final int DEFAULT_STABLE_FRAMES = 5;
+    /**
+     * 默认抖动阈值：相对于检测框尺寸的比例
+     */
+    public static final float DEFAULT_JITTER_THRESHOLD = 0.03F;
+    /**
+     * 默认防抖时长（毫秒）
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+    /**
+     * 默认冷却时长（毫秒）
+     */
+    public static final long DEFAULT_COOLDOWN_MILLIS = 1500;
+
+    private final OnTriggerListener listener;
+
+    @Nullable
+    private RectF captureWindow;
+    private int stableFrames = DEFAULT_STABLE_FRAMES;
+    private float jitterThreshold = DEFAULT_JITTER_THRESHOLD;
+    private long debounceNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEBOUNCE_MILLIS);
+    private long cooldownNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_COOLDOWN_MILLIS);
+    private boolean enabled = true;
+
+    /**
+     * 上一次分析的检测框
+     */
+    @Nullable
+    private Rect lastBounds;
+    @Nullable
+    private Integer lastTrackingId;
+    private float lastJitter;
+
+    /**
+     * 连续稳定的分析次数及稳定开始的时间
+     */
+    private int stableCount;
+    private long stableSinceNanos;
+
+    /**
+     * 当前目标进入取景框的时间；未在取景框内时为 -1
+     */
+    private long enteredNanos = -1;
+
+    /**
+     * 上一次拍摄的目标尚未离开取景框，不再重复拍摄
+     */
+    private boolean waitingForExit;
+    private long lastTriggerNanos = -1;
+
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * @param listener 触发拍照的回调，如：调用 {@link com.android.detection.detection.ICamera#takePhoto()}
+     */
+    public AutoCaptureEngine(@NonNull OnTriggerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置取景框，与检测框使用相同的坐标系（分析图像坐标）；未设置时不会触发
+     *
+     * @param captureWindow 取景框
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setCaptureWindow(@Nullable RectF captureWindow) {
+        this.captureWindow = captureWindow != null ? new RectF(captureWindow) : null;
+        resetStreak();
+        return this;
+    }
+
+    /**
+     * 设置触发前需连续稳定的分析次数
+     *
+     * @param stableFrames 连续稳定的分析次数
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setStableFrames(int stableFrames) {
+        if (stableFrames <= 0) {
+            throw new IllegalArgumentException("stableFrames must be > 0");
+        }
+        this.stableFrames = stableFrames;
+        return this;
+    }
+
+    /**
+     * 设置抖动阈值：相邻两次检测框的中心及宽高的变化，相对于检测框宽高中较大者的比例
+     *
+     * @param jitterThreshold 抖动阈值
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setJitterThreshold(float jitterThreshold) {
+        if (jitterThreshold < 0) {
+            throw new IllegalArgumentException("jitterThreshold must be >= 0");
+        }
+        this.jitterThreshold = jitterThreshold;
+        return this;
+    }
+
+    /**
+     * 设置防抖时长：稳定状态至少持续多久才触发；为0时只按连续稳定的分析次数判断
+     *
+     * @param debounceMillis 防抖时长（毫秒）
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("debounceMillis must be >= 0");
+        }
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        return this;
+    }
+
+    /**
+     * 设置冷却时长：触发后至少间隔多久才能再次触发
+     *
+     * @param cooldownMillis 冷却时长（毫秒）
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setCooldownMillis(long cooldownMillis) {
+        if (cooldownMillis < 0) {
+            throw new IllegalArgumentException("cooldownMillis must be >= 0");
+        }
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        return this;
+    }
+
+    /**
+     * 设置是否启用自动拍照；禁用期间仍跟踪检测框，但不会触发
+     *
+     * @param enabled 是否启用
+     * @return {@link AutoCaptureEngine}
+     */
+    @NonNull
+    public synchronized AutoCaptureEngine setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            resetStreak();
+        }
+        return this;
+    }
+
+    /**
+     * 传入一次分析的检测框
+     *
+     * @param bounds     检测框（分析图像坐标）；未检测到目标时为空
+     * @param trackingId 检测框的跟踪ID，如：{@code DetectedObject.getTrackingId()}
+     * @param sequence   分析结果的帧序号，触发时原样传给回调
+     * @param timeNanos  分析结果的时间，如：{@link System#nanoTime()}
+     * @return 本次是否触发了拍照
+     */
+    public boolean update(@Nullable Rect bounds, @Nullable Integer trackingId, long sequence, long timeNanos) {
+        long timeToCaptureNanos;
+        synchronized (this) {
+            metrics.analyses++;
+            boolean inside = isInsideWindow(bounds);
+            boolean sameTarget = lastBounds != null && Objects.equals(trackingId, lastTrackingId);
+            if (!inside) {
+                // 目标离开取景框，可以拍摄下一个目标
+                if (stableCount > 0) {
+                    metrics.exitResets++;
+                }
+                resetStreak();
+                waitingForExit = false;
+                remember(bounds, trackingId);
+                return false;
+            }
+            if (!sameTarget) {
+                // 换成了新的目标
+                waitingForExit = false;
+                enteredNanos = timeNanos;
+                lastJitter = 0;
+                stableCount = 1;
+                stableSinceNanos = timeNanos;
+            } else {
+                if (enteredNanos < 0) {
+                    enteredNanos = timeNanos;
+                }
+                lastJitter = jitter(lastBounds, bounds);
+                if (lastJitter <= jitterThreshold) {
+                    if (stableCount++ == 0) {
+                        stableSinceNanos = timeNanos;
+                    }
+                } else {
+                    if (stableCount > 0) {
+                        metrics.jitterResets++;
+                    }
+                    stableCount = 1;
+                    stableSinceNanos = timeNanos;
+                }
+            }
+            remember(bounds, trackingId);
+            if (!enabled || waitingForExit || stableCount < stableFrames
+                    || timeNanos - stableSinceNanos < debounceNanos
+                    || (lastTriggerNanos >= 0 && timeNanos - lastTriggerNanos < cooldownNanos)) {
+                return false;
+            }
+            timeToCaptureNanos = timeNanos - enteredNanos;
+            lastTriggerNanos = timeNanos;
+            waitingForExit = true;
+            stableCount = 0;
+            metrics.record(timeToCaptureNanos);
+        }
+        // 在锁外回调，回调中可以安全地调用引擎的方法
+        listener.onTrigger(sequence, timeToCaptureNanos);
+        return true;
+    }
+
+    /**
+     * 检测框是否完全位于取景框内；未设置取景框时返回{@code false}
+     *
+     * @param bounds 检测框，与取景框使用相同的坐标系
+     * @return 返回{@code true} 表示位于取景框内
+     */
+    public synchronized boolean isInsideWindow(@Nullable Rect bounds) {
+        RectF window = captureWindow;
+        return bounds != null && window != null &&
+                bounds.left >= window.left && bounds.right <= window.right &&
+                bounds.top >= window.top && bounds.bottom <= window.bottom;
+    }
+
+    /**
+     * 清除跟踪状态，如：相机停止时；统计数据保留
+     */
+    public synchronized void reset() {
+        resetStreak();
+        lastBounds = null;
+        lastTrackingId = null;
+        waitingForExit = false;
+    }
+
+    /**
+     * 当前连续稳定的分析次数
+     */
+    public synchronized int getStableCount() {
+        return stableCount;
+    }
+
+    /**
+     * 最近一次检测框的抖动
+     */
+    public synchronized float getLastJitter() {
+        return lastJitter;
+    }
+
+    /**
+     * 统计数据的快照
+     */
+    @NonNull
+    public synchronized Metrics getMetrics() {
+        return metrics.copy();
+    }
+
+    private void resetStreak() {
+        stableCount = 0;
+        enteredNanos = -1;
+        lastJitter = 0;
+    }
+
+    private void remember(@Nullable Rect bounds, @Nullable Integer trackingId) {
+        if (bounds == null) {
+            lastBounds = null;
+        } else if (lastBounds == null) {
+            lastBounds = new Rect(bounds);
+        } else {
+            lastBounds.set(bounds.left, bounds.top, bounds.right, bounds.bottom);
+        }
+        lastTrackingId = trackingId;
+    }
+
+    /**
+     * 相邻两次检测框的抖动：中心及宽高变化的最大值，相对于检测框宽高中较大者的比例
+     */
+    private static float jitter(@NonNull Rect previous, @NonNull Rect current) {
+        float size = Math.max(1, Math.max(previous.width(), previous.height()));
+        float dx = Math.abs((current.left + current.right) - (previous.left + previous.right)) / 2F;
+        float dy = Math.abs((current.top + current.bottom) - (previous.top + previous.bottom)) / 2F;
+        float dw = Math.abs(current.width() - previous.width());
+        float dh = Math.abs(current.height() - previous.height());
+        return Math.max(Math.max(dx, dy), Math.max(dw, dh)) / size;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "AutoCaptureEngine{" +
+                "stable=" + stableCount + "/" + stableFrames +
+                ", lastJitter=" + lastJitter +
+                ", " + metrics +
+                '}';
+    }
+
+    /**
+     * 自动拍照的统计数据
+     */
+    public static final class Metrics {
+        private long analyses;
+        private long captures;
+        private long jitterResets;
+        private long exitResets;
+        private long lastTimeToCaptureNanos;
+        private long totalTimeToCaptureNanos;
+        private long minTimeToCaptureNanos = Long.MAX_VALUE;
+        private long maxTimeToCaptureNanos;
+
+        void record(long timeToCaptureNanos) {
+            captures++;
+            lastTimeToCaptureNanos = timeToCaptureNanos;
+            totalTimeToCaptureNanos += timeToCaptureNanos;
+            minTimeToCaptureNanos = Math.min(minTimeToCaptureNanos, timeToCaptureNanos);
+            maxTimeToCaptureNanos = Math.max(maxTimeToCaptureNanos, timeToCaptureNanos);
+        }
+
+        @NonNull
+        Metrics copy() {
+            Metrics copy = new Metrics();
+            copy.analyses = analyses;
+            copy.captures = captures;
+            copy.jitterResets = jitterResets;
+            copy.exitResets = exitResets;
+            copy.lastTimeToCaptureNanos = lastTimeToCaptureNanos;
+            copy.totalTimeToCaptureNanos = totalTimeToCaptureNanos;
+            copy.minTimeToCaptureNanos = minTimeToCaptureNanos;
+            copy.maxTimeToCaptureNanos = maxTimeToCaptureNanos;
+            return copy;
+        }
+
+        /**
+         * 传入的分析次数
+         */
+        public long getAnalyses() {
+            return analyses;
+        }
+
+        /**
+         * 触发拍照的次数
+         */
+        public long getCaptures() {
+            return captures;
+        }
+
+        /**
+         * 因抖动超过阈值而重新计数的次数
+         */
+        public long getJitterResets() {
+            return jitterResets;
+        }
+
+        /**
+         * 稳定期间目标离开取景框（或未检测到）的次数
+         */
+        public long getExitResets() {
+            return exitResets;
+        }
+
+        /**
+         * 最近一次从目标进入取景框到触发拍照的时长（纳秒）
+         */
+        public long getLastTimeToCaptureNanos() {
+            return lastTimeToCaptureNanos;
+        }
+
+        /**
+         * 从目标进入取景框到触发拍照的平均时长（纳秒）
+         */
+        public long getAverageTimeToCaptureNanos() {
+            return captures > 0 ? totalTimeToCaptureNanos / captures : 0;
+        }
+
+        /**
+         * 从目标进入取景框到触发拍照的最短时长（纳秒）
+         */
+        public long getMinTimeToCaptureNanos() {
+            return captures > 0 ? minTimeToCaptureNanos : 0;
+        }
+
+        /**
+         * 从目标进入取景框到触发拍照的最长时长（纳秒）
+         */
+        public long getMaxTimeToCaptureNanos() {
+            return maxTimeToCaptureNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "analyses=" + analyses +
+                    ", captures=" + captures +
+                    ", jitterResets=" + jitterResets +
+                    ", exitResets=" + exitResets +
+                    String.format(Locale.US, ", timeToCapture(last/avg/min/max)=%d/%d/%d/%dms",
+                            TimeUnit.NANOSECONDS.toMillis(lastTimeToCaptureNanos),
+                            TimeUnit.NANOSECONDS.toMillis(getAverageTimeToCaptureNanos()),
+                            TimeUnit.NANOSECONDS.toMillis(getMinTimeToCaptureNanos()),
+                            TimeUnit.NANOSECONDS.toMillis(maxTimeToCaptureNanos)) +
+                    '}';
+        }
+    }
+
+    /**
+     * 触发拍照的回调
+     */
+    public interface OnTriggerListener {
+        /**
+         * 触发拍照；在调用 {@link #update(Rect, Integer, long, long)} 的线程上回调
+         *
+         * @param sequence           触发拍照的分析结果的帧序号，可用于零延迟拍照
+         * @param timeToCaptureNanos 从目标进入取景框到触发拍照的时长（纳秒）
+         */
+        void onTrigger(long sequence, long timeToCaptureNanos);
+    }
+}
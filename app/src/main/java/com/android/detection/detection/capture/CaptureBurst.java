@@ -0,0 +1,461 @@
+package com.android.detection.detection.capture;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连拍：将一组照片批量写入 {@link MediaStore}，由 {@link CaptureWriter#beginBurst(int, OnBurstListener)} 创建
+ * <p>
+ * 开始连拍时即在连拍线程上通过一次 {@link ContentResolver#applyBatch(String, ArrayList)} 创建全部记录，
+ * 与相机拍摄同时进行；照片加入后按加入的顺序依次写入对应的记录，全部结束后再通过一次批量操作发布成功的照片
+ * （取消 {@link MediaStore.MediaColumns#IS_PENDING} 标记）并删除未使用的记录，最后回调本次连拍的吞吐量统计。
+ * <p>
+ * 照片可以从任意线程加入；加入的照片超过张数或连拍已结束时不再接受，直接执行其 {@code releaseAction}。
+ */
+@SuppressWarnings("unused")
+public final class CaptureBurst {
+
+    private final ContentResolver contentResolver;
+    private final Executor executor;
+    private final String relativePath;
+    private final String namePrefix;
+    private final int count;
+    @Nullable
+    private final OnBurstListener listener;
+
+    private final long startTime = System.nanoTime();
+
+    private final ConcurrentLinkedQueue<Shot> shots = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已接受的照片数量（含拍摄失败的照片）
+     */
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private volatile boolean finished;
+
+    // 以下字段只在连拍线程上访问
+    private Uri[] uris;
+    @Nullable
+    private Exception insertError;
+    private int processed;
+    private int failed;
+    private long bytes;
+    private long insertNanos;
+    private long writeNanos;
+    private final List<Uri> savedUris = new ArrayList<>();
+    private final boolean[] saved;
+    private boolean reported;
+
+    CaptureBurst(@NonNull ContentResolver contentResolver, @NonNull Executor executor, @NonNull String relativePath,
+                 @NonNull String namePrefix, int count, @Nullable OnBurstListener listener) {
+        this.contentResolver = contentResolver;
+        this.executor = executor;
+        this.relativePath = relativePath;
+        this.namePrefix = namePrefix;
+        this.count = count;
+        this.listener = listener;
+        this.saved = new boolean[count];
+    }
+
+    /**
+     * 提交批量创建记录的任务
+     */
+    void start() {
+        scheduleDrain();
+    }
+
+    /**
+     * 加入一张JPEG照片
+     *
+     * @param jpeg          JPEG数据，写入从当前位置到上限的数据
+     * @param releaseAction 写入结束（或未被接受）后执行的动作
+     * @return 是否被接受
+     * @see CaptureWriter#jpegContent(ByteBuffer)
+     */
+    public boolean add(@NonNull ByteBuffer jpeg, @Nullable Runnable releaseAction) {
+        return add(CaptureWriter.jpegContent(jpeg), releaseAction);
+    }
+
+    /**
+     * 加入一张照片
+     *
+     * @param content       照片内容，在连拍线程上写入
+     * @param releaseAction 写入结束（或未被接受）后执行的动作
+     * @return 是否被接受
+     */
+    public boolean add(@NonNull CaptureWriter.Content content, @Nullable Runnable releaseAction) {
+        if (!reserve()) {
+            if (releaseAction != null) {
+                releaseAction.run();
+            }
+            return false;
+        }
+        shots.add(new Shot(content, releaseAction, null));
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * 记录一张拍摄失败的照片，其记录将在连拍结束时删除
+     *
+     * @param reason 失败原因
+     */
+    public void skip(@NonNull Exception reason) {
+        if (!reserve()) {
+            return;
+        }
+        shots.add(new Shot(null, null, reason));
+        scheduleDrain();
+    }
+
+    /**
+     * 提前结束连拍，如：相机关闭时；已加入的照片照常写入，其余的记录将被删除
+     */
+    public void finish() {
+        finished = true;
+        scheduleDrain();
+    }
+
+    /**
+     * 是否仍在等待照片加入
+     */
+    public boolean isCollecting() {
+        return !finished && accepted.get() < count;
+    }
+
+    /**
+     * 连拍张数
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 尚未加入的照片数量
+     */
+    public int getRemaining() {
+        return finished ? 0 : Math.max(0, count - accepted.get());
+    }
+
+    private boolean reserve() {
+        while (true) {
+            int current = accepted.get();
+            if (finished || current >= count) {
+                return false;
+            }
+            if (accepted.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * 在连拍线程上写入已加入的照片，所有照片都已处理（或连拍已结束）时发布
+     */
+    private void drain() {
+        // 先清除标记，之后加入的照片会再次提交任务
+        drainScheduled.set(false);
+        if (uris == null) {
+            insertEntries();
+        }
+        Shot shot;
+        while ((shot = shots.poll()) != null) {
+            if (reported) {
+                shot.release();
+                continue;
+            }
+            writeShot(shot);
+        }
+        // 已预留但尚未加入队列的照片会在加入时再次触发
+        if (!reported && (processed == count || (finished && processed == accepted.get()))) {
+            publish();
+        }
+    }
+
+    /**
+     * 批量创建全部记录
+     */
+    private void insertEntries() {
+        long insertStart = System.nanoTime();
+        uris = new Uri[count];
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(MediaStore.MediaColumns.DISPLAY_NAME, String.format(Locale.US, "%s_%02d", namePrefix, i + 1));
+            contentValues.put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg");
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                contentValues.put(MediaStore.MediaColumns.RELATIVE_PATH, relativePath);
+                contentValues.put(MediaStore.MediaColumns.IS_PENDING, 1);
+            }
+            operations.add(ContentProviderOperation.newInsert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI)
+                    .withValues(contentValues)
+                    .build());
+        }
+        try {
+            ContentProviderResult[] results = contentResolver.applyBatch(MediaStore.AUTHORITY, operations);
+            for (int i = 0; i < count && i < results.length; i++) {
+                uris[i] = results[i].uri;
+            }
+        } catch (Exception e) {
+            insertError = e;
+            e.printStackTrace();
+        }
+        insertNanos = System.nanoTime() - insertStart;
+    }
+
+    /**
+     * 将照片写入下一条记录
+     */
+    private void writeShot(@NonNull Shot shot) {
+        int index = processed++;
+        long writeStart = System.nanoTime();
+        try {
+            if (shot.content == null) {
+                throw shot.error != null ? shot.error : new IOException("capture failed");
+            }
+            Uri uri = uris[index];
+            if (uri == null) {
+                throw new IOException("No MediaStore entry for burst shot " + (index + 1), insertError);
+            }
+            try (ParcelFileDescriptor pfd = contentResolver.openFileDescriptor(uri, "w")) {
+                if (pfd == null) {
+                    throw new IOException("Failed to open " + uri);
+                }
+                try (FileOutputStream outputStream = new FileOutputStream(pfd.getFileDescriptor())) {
+                    shot.content.writeTo(outputStream);
+                    outputStream.flush();
+                    bytes += outputStream.getChannel().position();
+                }
+            }
+            saved[index] = true;
+            savedUris.add(uri);
+        } catch (Exception e) {
+            failed++;
+            e.printStackTrace();
+        } finally {
+            writeNanos += System.nanoTime() - writeStart;
+            shot.release();
+        }
+    }
+
+    /**
+     * 批量发布成功的照片并删除其余的记录，然后回调统计
+     */
+    private void publish() {
+        reported = true;
+        long publishStart = System.nanoTime();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Uri uri = uris[i];
+            if (uri == null) {
+                continue;
+            }
+            if (!saved[i]) {
+                operations.add(ContentProviderOperation.newDelete(uri).build());
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                operations.add(ContentProviderOperation.newUpdate(uri)
+                        .withValue(MediaStore.MediaColumns.IS_PENDING, 0)
+                        .build());
+            }
+        }
+        if (!operations.isEmpty()) {
+            try {
+                contentResolver.applyBatch(MediaStore.AUTHORITY, operations);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        long endTime = System.nanoTime();
+        BurstReport report = new BurstReport(count, savedUris, failed + (count - processed), bytes,
+                insertNanos, writeNanos, endTime - publishStart, endTime - startTime);
+        if (listener != null) {
+            listener.onBurstComplete(report);
+        }
+    }
+
+    /**
+     * 一张照片
+     */
+    private static final class Shot {
+        @Nullable
+        final CaptureWriter.Content content;
+        @Nullable
+        final Runnable releaseAction;
+        @Nullable
+        final Exception error;
+
+        Shot(@Nullable CaptureWriter.Content content, @Nullable Runnable releaseAction, @Nullable Exception error) {
+            this.content = content;
+            this.releaseAction = releaseAction;
+            this.error = error;
+        }
+
+        void release() {
+            if (releaseAction != null) {
+                releaseAction.run();
+            }
+        }
+    }
+
+    /**
+     * 连拍的吞吐量统计
+     */
+    public static final class BurstReport {
+        private final int requested;
+        private final List<Uri> uris;
+        private final int failed;
+        private final long bytes;
+        private final long insertNanos;
+        private final long writeNanos;
+        private final long publishNanos;
+        private final long elapsedNanos;
+
+        BurstReport(int requested, @NonNull List<Uri> uris, int failed, long bytes,
+                    long insertNanos, long writeNanos, long publishNanos, long elapsedNanos) {
+            this.requested = requested;
+            this.uris = Collections.unmodifiableList(new ArrayList<>(uris));
+            this.failed = failed;
+            this.bytes = bytes;
+            this.insertNanos = insertNanos;
+            this.writeNanos = writeNanos;
+            this.publishNanos = publishNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 请求的张数
+         */
+        public int getRequested() {
+            return requested;
+        }
+
+        /**
+         * 保存成功的照片，按拍摄顺序排列
+         */
+        @NonNull
+        public List<Uri> getUris() {
+            return uris;
+        }
+
+        /**
+         * 保存成功的张数
+         */
+        public int getSaved() {
+            return uris.size();
+        }
+
+        /**
+         * 失败或未拍摄的张数
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * 写入的字节数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 批量创建记录的时长（纳秒）
+         */
+        public long getInsertNanos() {
+            return insertNanos;
+        }
+
+        /**
+         * 写入（含编码）所有照片的总时长（纳秒）
+         */
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        /**
+         * 批量发布的时长（纳秒）
+         */
+        public long getPublishNanos() {
+            return publishNanos;
+        }
+
+        /**
+         * 从开始连拍到发布完成的总时长（纳秒）
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 每秒保存的张数（按总时长计算）
+         */
+        public double getShotsPerSecond() {
+            return elapsedNanos > 0 ? getSaved() * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * 写入速度（MB/s，按写入时长计算）
+         */
+        public double getWriteMegabytesPerSecond() {
+            return writeNanos > 0 ? bytes * 1e9 / writeNanos / (1024 * 1024) : 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "BurstReport{" +
+                    "saved=" + getSaved() + "/" + requested +
+                    ", failed=" + failed +
+                    ", bytes=" + bytes +
+                    ", insert=" + TimeUnit.NANOSECONDS.toMillis(insertNanos) + "ms" +
+                    ", write=" + TimeUnit.NANOSECONDS.toMillis(writeNanos) + "ms" +
+                    ", publish=" + TimeUnit.NANOSECONDS.toMillis(publishNanos) + "ms" +
+                    ", elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms" +
+                    String.format(Locale.US, ", %.1f shots/s, %.1f MB/s", getShotsPerSecond(), getWriteMegabytesPerSecond()) +
+                    '}';
+        }
+    }
+
+    /**
+     * 连拍结束监听
+     */
+    public interface OnBurstListener {
+        /**
+         * 连拍的照片全部写入（或连拍被提前结束）并发布后回调；在连拍线程上回调
+         *
+         * @param report 吞吐量统计
+         */
+        void onBurstComplete(@NonNull BurstReport report);
+    }
+}
@@ -0,0 +1,430 @@
+package com.android.detection.detection.capture;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.detection.detection.AnalyzeResult;
+import com.android.detection.detection.FrameMetadata;
+import com.android.detection.detection.util.BitmapUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 照片写入器：将拍摄的JPEG数据异步写入 {@link MediaStore}
+ * <p>
+ * 写入任务在有界队列中排队，由独立的I/O线程依次执行，拍照回调线程只负责提交，不再等待磁盘写入；
+ * 队列已满时直接回调失败，避免连续拍照时内存中堆积过多的照片。
+ * <p>
+ * 数据通过 {@link ParcelFileDescriptor} 的 {@link FileChannel} 直接从 {@link ByteBuffer} 写入，不经过中间数组；
+ * Android 10及以上在写入期间将照片标记为 {@link MediaStore.MediaColumns#IS_PENDING}，写入完成后才对其它应用可见，
+ * 写入失败时删除未完成的照片。
+ * <p>
+ * 除已编码的JPEG数据外，也可通过 {@link #writeFrame(AnalyzeResult, OnCaptureWriteListener)} 写入分析帧，编码同样在I/O线程上进行。
+ * <p>
+ * 连拍通过 {@link #beginBurst(int, CaptureBurst.OnBurstListener)} 进行，在独立的连拍线程上批量写入，参见 {@link CaptureBurst}。
+ */
+@SuppressWarnings("unused")
+public class CaptureWriter {
+
+    /**
+     * 默认队列容量
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    /**
+     * 连拍的最大张数：连拍的照片在写入前全部保留在内存中
+     */
+    public static final int MAX_BURST_SIZE = 10;
+
+    /**
+     * 编码分析帧时的默认JPEG质量
+     */
+    public static final int DEFAULT_JPEG_QUALITY = 95;
+
+    /**
+     * 默认保存目录（相对路径）
+     */
+    public static final String DEFAULT_RELATIVE_PATH = "Pictures/Camera Detection";
+
+    /**
+     * I/O线程空闲多久后退出（秒）
+     */
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private final ContentResolver contentResolver;
+
+    private final ThreadPoolExecutor ioExecutor;
+
+    /**
+     * 连拍线程：连拍的张数已有上限，队列无需限制
+     */
+    private final ThreadPoolExecutor burstExecutor;
+
+    @NonNull
+    private volatile String relativePath = DEFAULT_RELATIVE_PATH;
+
+    public CaptureWriter(@NonNull Context context) {
+        this(context, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param queueCapacity 等待写入的照片的最大数量（不含正在写入的一张）
+     */
+    public CaptureWriter(@NonNull Context context, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be > 0");
+        }
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+        this.ioExecutor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "CaptureWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.burstExecutor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "CaptureBurst");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 没有照片需要写入时不保留线程
+        this.ioExecutor.allowCoreThreadTimeOut(true);
+        this.burstExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 设置保存目录；仅Android 10及以上生效
+     *
+     * @param relativePath 相对路径，如：{@link #DEFAULT_RELATIVE_PATH}
+     * @return {@link CaptureWriter}
+     */
+    @NonNull
+    public CaptureWriter setRelativePath(@NonNull String relativePath) {
+        this.relativePath = relativePath;
+        return this;
+    }
+
+    /**
+     * 异步写入一张JPEG照片，文件名为 {@code Photo_<时间戳>}
+     *
+     * @see #write(ByteBuffer, String, Runnable, OnCaptureWriteListener)
+     */
+    public void write(@NonNull ByteBuffer jpeg, @Nullable Runnable releaseAction, @Nullable OnCaptureWriteListener listener) {
+        write(jpeg, "Photo_" + System.currentTimeMillis(), releaseAction, listener);
+    }
+
+    /**
+     * 异步写入一张JPEG照片
+     * <p>
+     * 写入 {@code jpeg} 从当前位置到上限的数据；写入结束（无论成功与否）后执行 {@code releaseAction}，
+     * 在此之前调用方不可修改或释放 {@code jpeg}（如：相机的 {@link android.media.Image} 需在此时才关闭）。
+     *
+     * @param jpeg          JPEG数据
+     * @param displayName   文件名
+     * @param releaseAction 写入结束后执行的动作
+     * @param listener      写入结果监听，在I/O线程上回调
+     */
+    public void write(@NonNull ByteBuffer jpeg, @NonNull String displayName,
+                      @Nullable Runnable releaseAction, @Nullable OnCaptureWriteListener listener) {
+        write(jpegContent(jpeg), displayName, releaseAction, listener);
+    }
+
+    /**
+     * 异步将分析帧编码为JPEG并写入，文件名为 {@code Photo_<时间戳>}
+     * <p>
+     * 分析帧为分析器实际检测的图像（启用感兴趣区域或缩小时为裁剪、缩小后的图像），已按旋转角度转正；
+     * 写入器接管调用方持有的一个引用，写入结束后释放。
+     *
+     * @param frame    分析帧，调用方需已持有一个引用（参见 {@link AnalyzeResult#acquire()}）
+     * @param listener 写入结果监听，在I/O线程上回调
+     */
+    public void writeFrame(@NonNull AnalyzeResult<?> frame, @Nullable OnCaptureWriteListener listener) {
+        FrameMetadata metadata = frame.getFrameMetadata();
+        ByteBuffer nv21 = frame.isDirect() ? frame.getImageBuffer() : ByteBuffer.wrap(frame.getImageData());
+        write(nv21Content(nv21, metadata.getWidth(), metadata.getHeight(), metadata.getRotation()),
+                "Photo_" + System.currentTimeMillis(), frame::release, listener);
+    }
+
+    /**
+     * 开始一次连拍：在连拍线程上立即批量创建 {@code count} 条MediaStore记录，照片随后通过
+     * {@link CaptureBurst#add(ByteBuffer, Runnable)} 等方法逐张加入并写入，全部结束后批量发布
+     *
+     * @param count    连拍张数，不超过 {@link #MAX_BURST_SIZE}
+     * @param listener 连拍结束监听，在连拍线程上回调
+     * @return {@link CaptureBurst}
+     */
+    @NonNull
+    public CaptureBurst beginBurst(int count, @Nullable CaptureBurst.OnBurstListener listener) {
+        if (count <= 0 || count > MAX_BURST_SIZE) {
+            throw new IllegalArgumentException("count must be in [1, " + MAX_BURST_SIZE + "]");
+        }
+        CaptureBurst burst = new CaptureBurst(contentResolver, burstExecutor, relativePath,
+                "Burst_" + System.currentTimeMillis(), count, listener);
+        burst.start();
+        return burst;
+    }
+
+    /**
+     * JPEG数据的照片内容：通过 {@link FileChannel} 直接写入，不经过中间数组
+     *
+     * @param jpeg JPEG数据，写入从当前位置到上限的数据
+     * @return {@link Content}
+     */
+    @NonNull
+    public static Content jpegContent(@NonNull ByteBuffer jpeg) {
+        return outputStream -> {
+            FileChannel channel = outputStream.getChannel();
+            while (jpeg.hasRemaining()) {
+                channel.write(jpeg);
+            }
+        };
+    }
+
+    /**
+     * NV21图像数据的照片内容：写入时按旋转角度转正并以 {@link #DEFAULT_JPEG_QUALITY} 编码为JPEG
+     *
+     * @param nv21     NV21图像数据
+     * @param width    宽
+     * @param height   高
+     * @param rotation 旋转角度
+     * @return {@link Content}
+     */
+    @NonNull
+    public static Content nv21Content(@NonNull ByteBuffer nv21, int width, int height, int rotation) {
+        return outputStream -> {
+            Bitmap bitmap = BitmapUtils.getBitmap(nv21, width, height, rotation);
+            if (bitmap == null) {
+                throw new IOException("Failed to convert " + width + "x" + height + " NV21 frame");
+            }
+            try {
+                if (!bitmap.compress(Bitmap.CompressFormat.JPEG, DEFAULT_JPEG_QUALITY, outputStream)) {
+                    throw new IOException("Failed to encode " + width + "x" + height + " NV21 frame");
+                }
+            } finally {
+                bitmap.recycle();
+            }
+        };
+    }
+
+    /**
+     * 异步写入一张照片
+     *
+     * @param content       照片内容，在I/O线程上写入
+     * @param displayName   文件名
+     * @param releaseAction 写入结束后执行的动作
+     * @param listener      写入结果监听，在I/O线程上回调
+     */
+    public void write(@NonNull Content content, @NonNull String displayName,
+                      @Nullable Runnable releaseAction, @Nullable OnCaptureWriteListener listener) {
+        long queuedTime = System.nanoTime();
+        String path = relativePath;
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    performWrite(content, displayName, path, queuedTime, listener);
+                } finally {
+                    if (releaseAction != null) {
+                        releaseAction.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (releaseAction != null) {
+                releaseAction.run();
+            }
+            if (listener != null) {
+                listener.onFailure(new IOException("capture write queue is full", e));
+            }
+        }
+    }
+
+    /**
+     * 等待写入的照片数量
+     */
+    public int getPendingCount() {
+        return ioExecutor.getQueue().size();
+    }
+
+    /**
+     * 执行写入；在I/O线程上执行
+     */
+    private void performWrite(@NonNull Content content, @NonNull String displayName, @NonNull String path,
+                              long queuedTime, @Nullable OnCaptureWriteListener listener) {
+        long startTime = System.nanoTime();
+        long bytes;
+        Uri uri = null;
+        try {
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(MediaStore.MediaColumns.DISPLAY_NAME, displayName);
+            contentValues.put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg");
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                contentValues.put(MediaStore.MediaColumns.RELATIVE_PATH, path);
+                contentValues.put(MediaStore.MediaColumns.IS_PENDING, 1);
+            }
+            uri = contentResolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues);
+            if (uri == null) {
+                throw new IOException("Failed to create MediaStore entry for " + displayName);
+            }
+            long insertedTime = System.nanoTime();
+
+            try (ParcelFileDescriptor pfd = contentResolver.openFileDescriptor(uri, "w")) {
+                if (pfd == null) {
+                    throw new IOException("Failed to open " + uri);
+                }
+                try (FileOutputStream outputStream = new FileOutputStream(pfd.getFileDescriptor())) {
+                    content.writeTo(outputStream);
+                    outputStream.flush();
+                    bytes = outputStream.getChannel().position();
+                }
+            }
+            long writtenTime = System.nanoTime();
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                ContentValues published = new ContentValues();
+                published.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                contentResolver.update(uri, published, null, null);
+            }
+            long publishedTime = System.nanoTime();
+
+            if (listener != null) {
+                listener.onSuccess(uri, new Timings(startTime - queuedTime, insertedTime - startTime,
+                        writtenTime - insertedTime, publishedTime - writtenTime, bytes));
+            }
+        } catch (Exception e) {
+            if (uri != null) {
+                try {
+                    contentResolver.delete(uri, null, null);
+                } catch (Exception ignored) {
+                }
+            }
+            if (listener != null) {
+                listener.onFailure(e);
+            } else {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 写入各阶段的耗时
+     */
+    public static final class Timings {
+        private final long queueNanos;
+        private final long insertNanos;
+        private final long writeNanos;
+        private final long publishNanos;
+        private final long bytes;
+
+        Timings(long queueNanos, long insertNanos, long writeNanos, long publishNanos, long bytes) {
+            this.queueNanos = queueNanos;
+            this.insertNanos = insertNanos;
+            this.writeNanos = writeNanos;
+            this.publishNanos = publishNanos;
+            this.bytes = bytes;
+        }
+
+        /**
+         * 在队列中等待的时长（纳秒）
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * 创建MediaStore记录的时长（纳秒）
+         */
+        public long getInsertNanos() {
+            return insertNanos;
+        }
+
+        /**
+         * 写入数据的时长（纳秒），写入分析帧时包含编码的时长
+         */
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        /**
+         * 发布（取消 IS_PENDING 标记）的时长（纳秒）
+         */
+        public long getPublishNanos() {
+            return publishNanos;
+        }
+
+        /**
+         * 从提交到写入完成的总时长（纳秒）
+         */
+        public long getTotalNanos() {
+            return queueNanos + insertNanos + writeNanos + publishNanos;
+        }
+
+        /**
+         * 写入的字节数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Timings{" +
+                    "queue=" + TimeUnit.NANOSECONDS.toMillis(queueNanos) + "ms" +
+                    ", insert=" + TimeUnit.NANOSECONDS.toMillis(insertNanos) + "ms" +
+                    ", write=" + TimeUnit.NANOSECONDS.toMillis(writeNanos) + "ms" +
+                    ", publish=" + TimeUnit.NANOSECONDS.toMillis(publishNanos) + "ms" +
+                    ", bytes=" + bytes +
+                    '}';
+        }
+    }
+
+    /**
+     * 照片内容
+     */
+    public interface Content {
+        /**
+         * 将照片内容写入输出流；在I/O线程上调用
+         *
+         * @param outputStream 照片文件的输出流
+         * @throws IOException 写入失败
+         */
+        void writeTo(@NonNull FileOutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * 写入结果监听
+     */
+    public interface OnCaptureWriteListener {
+        /**
+         * 写入成功
+         *
+         * @param uri     照片的 {@link Uri}
+         * @param timings 各阶段的耗时
+         */
+        void onSuccess(@NonNull Uri uri, @NonNull Timings timings);
+
+        /**
+         * 写入失败
+         *
+         * @param e 异常
+         */
+        void onFailure(@NonNull Exception e);
+    }
+}
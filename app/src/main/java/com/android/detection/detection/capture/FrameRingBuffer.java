@@ -0,0 +1,116 @@
+package com.android.detection.detection.capture;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.detection.detection.AnalyzeResult;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 帧环形缓冲区：保留最近N帧带检测结果的分析帧，用于零延迟拍照
+ * <p>
+ * 加入的分析结果会持有一个引用（参见 {@link AnalyzeResult#acquire()}），超出容量时释放最旧的一帧；
+ * 因此缓冲区中的帧会占用分析器的帧缓冲区（或Camera1的预览回调缓冲区），容量需相应增加。
+ *
+ * @param <T> 分析结果的类型
+ */
+@SuppressWarnings("unused")
+public class FrameRingBuffer<T> {
+
+    private final int capacity;
+
+    private final ArrayDeque<AnalyzeResult<T>> frames;
+
+    /**
+     * @param capacity 保留的帧数
+     */
+    public FrameRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        this.capacity = capacity;
+        this.frames = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * 加入一帧分析结果；超出容量时释放最旧的一帧
+     *
+     * @param result 分析结果，需在其释放前加入
+     */
+    public void add(@NonNull AnalyzeResult<T> result) {
+        try {
+            result.acquire();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        AnalyzeResult<T> evicted = null;
+        synchronized (this) {
+            frames.addLast(result);
+            if (frames.size() > capacity) {
+                evicted = frames.pollFirst();
+            }
+        }
+        if (evicted != null) {
+            evicted.release();
+        }
+    }
+
+    /**
+     * 获取指定帧序号的分析帧
+     *
+     * @param sequence 帧序号，参见 {@link AnalyzeResult#getSequence()}
+     * @return 已增加一个引用的分析帧，用完后需调用 {@link AnalyzeResult#release()}；缓冲区中没有该帧时返回{@code null}
+     */
+    @Nullable
+    public synchronized AnalyzeResult<T> acquire(long sequence) {
+        Iterator<AnalyzeResult<T>> iterator = frames.descendingIterator();
+        while (iterator.hasNext()) {
+            AnalyzeResult<T> frame = iterator.next();
+            if (frame.getSequence() == sequence) {
+                return frame.acquire();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取最新的分析帧
+     *
+     * @return 已增加一个引用的分析帧，用完后需调用 {@link AnalyzeResult#release()}；缓冲区为空时返回{@code null}
+     */
+    @Nullable
+    public synchronized AnalyzeResult<T> acquireLatest() {
+        AnalyzeResult<T> frame = frames.peekLast();
+        return frame != null ? frame.acquire() : null;
+    }
+
+    /**
+     * 释放所有帧
+     */
+    public void clear() {
+        AnalyzeResult<?>[] released;
+        synchronized (this) {
+            released = frames.toArray(new AnalyzeResult<?>[0]);
+            frames.clear();
+        }
+        for (AnalyzeResult<?> frame : released) {
+            frame.release();
+        }
+    }
+
+    /**
+     * 保留的帧数
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 当前缓冲的帧数
+     */
+    public synchronized int size() {
+        return frames.size();
+    }
+}
@@ -3,27 +3,24 @@ package com.android.detection.detection.util;
 import android.annotation.SuppressLint;
 import android.content.ContentResolver;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
 import android.graphics.Matrix;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
 import android.media.ExifInterface;
 import android.media.Image;
 import android.net.Uri;
 import android.os.Build;
 import android.provider.MediaStore;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.camera.core.ImageProxy;
 
 import com.android.detection.detection.FrameMetadata;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Utils functions for bitmap conversions.
@@ -48,24 +45,141 @@ public class BitmapUtils {
     @Nullable
     public static Bitmap getBitmap(ByteBuffer data, int width, int height, int rotationDegrees) {
         data.rewind();
-        byte[] imageInBuffer = new byte[data.limit()];
-        data.get(imageInBuffer, 0, imageInBuffer.length);
+        byte[] nv21Data;
+        if (data.hasArray() && data.arrayOffset() == 0) {
+            nv21Data = data.array();
+        } else {
+            nv21Data = new byte[data.limit()];
+            data.get(nv21Data, 0, nv21Data.length);
+        }
         try {
-            YuvImage image = new YuvImage(
-                    imageInBuffer, ImageFormat.NV21, width, height, null);
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            image.compressToJpeg(new Rect(0, 0, width, height), 80, stream);
-
-            Bitmap bmp = BitmapFactory.decodeByteArray(stream.toByteArray(), 0, stream.size());
-
-            stream.close();
-            return rotateBitmap(bmp, rotationDegrees, false, false);
+            return nv21ToBitmap(nv21Data, width, height, rotationDegrees, null, null);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * Converts NV21 format byte to an ARGB_8888 bitmap, rotating it in the same pass.
+     *
+     * <p>If {@code reuseBitmap} is mutable, ARGB_8888 and already has the rotated size, the pixels
+     * are written into it and it is returned; otherwise a new bitmap is created. {@code pixels} may be
+     * supplied to avoid allocating the intermediate ARGB array on every call.
+     */
+    @NonNull
+    public static Bitmap nv21ToBitmap(
+            byte[] nv21Data, int width, int height, int rotationDegrees,
+            @Nullable Bitmap reuseBitmap, @Nullable int[] pixels) {
+        int imageSize = width * height;
+        if (pixels == null || pixels.length < imageSize) {
+            pixels = new int[imageSize];
+        }
+        nv21ToArgb(nv21Data, width, height, rotationDegrees, pixels);
+
+        boolean swap = normalizeRotation(rotationDegrees) % 180 != 0;
+        int outWidth = swap ? height : width;
+        int outHeight = swap ? width : height;
+        if (reuseBitmap != null && reuseBitmap.isMutable()
+                && reuseBitmap.getConfig() == Bitmap.Config.ARGB_8888
+                && reuseBitmap.getWidth() == outWidth && reuseBitmap.getHeight() == outHeight) {
+            reuseBitmap.setPixels(pixels, 0, outWidth, 0, 0, outWidth, outHeight);
+            return reuseBitmap;
+        }
+        return Bitmap.createBitmap(pixels, 0, outWidth, outWidth, outHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Converts NV21 format byte to ARGB_8888 pixels, rotating them clockwise by
+     * {@code rotationDegrees} in the same pass.
+     *
+     * <p>Uses the full range BT.601 (JFIF) matrix in 16.16 fixed point, which matches what the
+     * previous {@link android.graphics.YuvImage} JPEG round-trip produced, without the compression loss. The output
+     * array must hold at least {@code width * height} pixels; its row length is {@code height} when
+     * the rotation is 90 or 270 degrees, {@code width} otherwise.
+     *
+     * <p>For odd sizes the last column and row share the chroma sample of their left/upper neighbour, so the
+     * interleaved VU rows are {@code width} rounded up to even bytes long and there are {@code (height + 1) / 2}
+     * of them.
+     */
+    public static void nv21ToArgb(byte[] nv21Data, int width, int height, int rotationDegrees, int[] argbOut) {
+        int imageSize = width * height;
+        int uvRowSize = (width + 1) & ~1;
+        if (nv21Data.length < imageSize + uvRowSize * ((height + 1) / 2)) {
+            throw new IllegalArgumentException("nv21Data is too small for " + width + "x" + height);
+        }
+        if (argbOut.length < imageSize) {
+            throw new IllegalArgumentException("argbOut is too small for " + width + "x" + height);
+        }
+        int rotation = normalizeRotation(rotationDegrees);
+
+        // Destination index of source pixel (x, y) is: base + x * xStep + y * yStep.
+        int base;
+        int xStep;
+        int yStep;
+        switch (rotation) {
+            case 90:
+                base = height - 1;
+                xStep = height;
+                yStep = -1;
+                break;
+            case 180:
+                base = imageSize - 1;
+                xStep = -1;
+                yStep = -width;
+                break;
+            case 270:
+                base = (width - 1) * height;
+                xStep = -height;
+                yStep = 1;
+                break;
+            default:
+                base = 0;
+                xStep = 1;
+                yStep = width;
+                break;
+        }
+
+        for (int y = 0; y < height; y++) {
+            int yIndex = y * width;
+            int uvIndex = imageSize + (y >> 1) * uvRowSize;
+            int outIndex = base + y * yStep;
+            for (int x = 0; x < width; x += 2) {
+                int v = (nv21Data[uvIndex++] & 0xFF) - 128;
+                int u = (nv21Data[uvIndex++] & 0xFF) - 128;
+                int rDiff = 91881 * v;
+                int gDiff = -22554 * u - 46802 * v;
+                int bDiff = 116130 * u;
+
+                argbOut[outIndex] = yuvToArgb(nv21Data[yIndex++] & 0xFF, rDiff, gDiff, bDiff);
+                outIndex += xStep;
+                if (x + 1 < width) {
+                    argbOut[outIndex] = yuvToArgb(nv21Data[yIndex++] & 0xFF, rDiff, gDiff, bDiff);
+                    outIndex += xStep;
+                }
+            }
+        }
+    }
+
+    private static int yuvToArgb(int y, int rDiff, int gDiff, int bDiff) {
+        int y16 = (y << 16) + 32768;
+        int r = (y16 + rDiff) >> 16;
+        int g = (y16 + gDiff) >> 16;
+        int b = (y16 + bDiff) >> 16;
+        r = r < 0 ? 0 : (r > 255 ? 255 : r);
+        g = g < 0 ? 0 : (g > 255 ? 255 : g);
+        b = b < 0 ? 0 : (b > 255 ? 255 : b);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int normalizeRotation(int rotationDegrees) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("rotationDegrees must be a multiple of 90: " + rotationDegrees);
+        }
+        return rotation;
+    }
+
     /**
      * Converts a YUV_420_888 image from CameraX API to a bitmap.
      */
@@ -189,6 +303,17 @@ public class BitmapUtils {
      * them to the NV21 array.
      */
     public static byte[] yuv420ThreePlanesToNV21(Image.Plane[] yuv420888planes, int width, int height) {
+        return yuv420ThreePlanesToNV21(yuv420888planes, width, height, null);
+    }
+
+    /**
+     * Converts YUV_420_888 to NV21 bytes, unpacking the planes in row stripes on {@code pool} when the
+     * UV planes are not already in the NV21 format and the image is large enough.
+     *
+     * @see #yuv420ThreePlanesToNV21(Image.Plane[], int, int)
+     */
+    public static byte[] yuv420ThreePlanesToNV21(
+            Image.Plane[] yuv420888planes, int width, int height, @Nullable ForkJoinPool pool) {
 
         int imageSize = width * height;
         byte[] out = new byte[imageSize + 2 * (imageSize / 4)];
@@ -206,11 +331,11 @@ public class BitmapUtils {
         } else {
             // Fallback to copying the UV values one by one, which is slower but also works.
             // Unpack Y.
-            unpackPlane(yuv420888planes[0], width, height, out, 0, 1);
+            unpackPlane(yuv420888planes[0], width, height, out, 0, 1, pool);
             // Unpack U.
-            unpackPlane(yuv420888planes[1], width, height, out, imageSize + 1, 2);
+            unpackPlane(yuv420888planes[1], width, height, out, imageSize + 1, 2, pool);
             // Unpack V.
-            unpackPlane(yuv420888planes[2], width, height, out, imageSize, 2);
+            unpackPlane(yuv420888planes[2], width, height, out, imageSize, 2, pool);
         }
 
         return out;
@@ -249,33 +374,52 @@ public class BitmapUtils {
      * Unpack an image plane into a byte array.
      *
      * <p>The input plane data will be copied in 'out', starting at 'offset' and every pixel will be
-     * spaced by 'pixelStride'. Note that there is no row padding on the output.
+     * spaced by 'pixelStride'. Note that there is no row padding on the output. Rows are unpacked in
+     * parallel stripes when {@code pool} is set and the image is large enough.
      */
     private static void unpackPlane(
-            Image.Plane plane, int width, int height, byte[] out, int offset, int pixelStride) {
+            Image.Plane plane, int width, int height, byte[] out, int offset, int pixelStride,
+            @Nullable ForkJoinPool pool) {
         ByteBuffer buffer = plane.getBuffer();
         buffer.rewind();
 
         // Compute the size of the current plane.
         // We assume that it has the aspect ratio as the original image.
-        int numRow = (buffer.limit() + plane.getRowStride() - 1) / plane.getRowStride();
+        int rowStride = plane.getRowStride();
+        int numRow = (buffer.limit() + rowStride - 1) / rowStride;
         if (numRow == 0) {
             return;
         }
         int scaleFactor = height / numRow;
         int numCol = width / scaleFactor;
+        int inputPixelStride = plane.getPixelStride();
 
+        if (!RowStripes.isParallel(pool, width, height)) {
+            unpackRows(buffer, rowStride, inputPixelStride, numCol, 0, numRow, out, offset, pixelStride);
+            return;
+        }
+        // Absolute gets do not touch the buffer position, so the stripes can share the buffer.
+        RowStripes.run(pool, numRow, (start, end) ->
+                unpackRows(buffer, rowStride, inputPixelStride, numCol, start, end, out, offset, pixelStride));
+    }
+
+    /**
+     * Unpack rows [rowStart, rowEnd) of an image plane into a byte array.
+     */
+    private static void unpackRows(
+            ByteBuffer buffer, int rowStride, int inputPixelStride, int numCol, int rowStart, int rowEnd,
+            byte[] out, int offset, int pixelStride) {
         // Extract the data in the output buffer.
-        int outputPos = offset;
-        int rowStart = 0;
-        for (int row = 0; row < numRow; row++) {
-            int inputPos = rowStart;
+        int outputPos = offset + rowStart * numCol * pixelStride;
+        int rowStartPos = rowStart * rowStride;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int inputPos = rowStartPos;
             for (int col = 0; col < numCol; col++) {
                 out[outputPos] = buffer.get(inputPos);
                 outputPos += pixelStride;
-                inputPos += plane.getPixelStride();
+                inputPos += inputPixelStride;
             }
-            rowStart += plane.getRowStride();
+            rowStartPos += rowStride;
         }
     }
 }
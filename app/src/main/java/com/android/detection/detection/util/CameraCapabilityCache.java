@@ -0,0 +1,254 @@
+package com.android.detection.detection.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Range;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 相机能力缓存：将选定的相机ID、预览/分析/拍照尺寸及支持的帧率范围保存在 {@link SharedPreferences} 中，
+ * 再次启动时直接读取，跳过查询相机特性、遍历输出尺寸等耗时的发现过程
+ * <p>
+ * 缓存按设备指纹（{@link Build#FINGERPRINT}）及相机ID区分：系统升级后指纹变化，缓存全部失效并重新发现。
+ * {@code namespace} 用于区分相机API及目标尺寸等配置，配置变化时使用新的命名空间即可。
+ */
+@SuppressWarnings("unused")
+public class CameraCapabilityCache {
+
+    /**
+     * 缓存格式的版本，格式变化时递增
+     */
+    private static final int VERSION = 1;
+
+    private static final String PREFERENCES_NAME = "camera_capabilities";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_SELECTED = "selected";
+
+    private final SharedPreferences preferences;
+    private final String namespace;
+
+    /**
+     * @param context   {@link Context}
+     * @param namespace 命名空间，如：{@code "camera2:2560x1920"}
+     */
+    public CameraCapabilityCache(@NonNull Context context, @NonNull String namespace) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.namespace = namespace;
+        String fingerprint = Build.FINGERPRINT + "#" + VERSION;
+        if (!fingerprint.equals(preferences.getString(KEY_FINGERPRINT, null))) {
+            preferences.edit().clear().putString(KEY_FINGERPRINT, fingerprint).apply();
+        }
+    }
+
+    /**
+     * 获取上次选定的相机ID
+     *
+     * @return 未缓存时返回{@code null}
+     */
+    @Nullable
+    public String getSelectedCameraId() {
+        return preferences.getString(key(KEY_SELECTED), null);
+    }
+
+    /**
+     * 获取相机的能力
+     *
+     * @param cameraId 相机ID
+     * @return 未缓存或缓存已损坏时返回{@code null}
+     */
+    @Nullable
+    public Capabilities get(@NonNull String cameraId) {
+        String value = preferences.getString(key("camera/" + cameraId), null);
+        return value != null ? Capabilities.decode(value) : null;
+    }
+
+    /**
+     * 保存相机的能力，并将其记为选定的相机
+     *
+     * @param capabilities 相机的能力
+     */
+    public void put(@NonNull Capabilities capabilities) {
+        preferences.edit()
+                .putString(key("camera/" + capabilities.getCameraId()), capabilities.encode())
+                .putString(key(KEY_SELECTED), capabilities.getCameraId())
+                .apply();
+    }
+
+    /**
+     * 清除当前命名空间下的缓存，如：按缓存的配置打开相机失败时
+     */
+    public void invalidate() {
+        SharedPreferences.Editor editor = preferences.edit();
+        String prefix = namespace + "/";
+        for (String key : preferences.getAll().keySet()) {
+            if (key.startsWith(prefix)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    @NonNull
+    private String key(@NonNull String name) {
+        return namespace + "/" + name;
+    }
+
+    /**
+     * 相机的能力
+     */
+    public static final class Capabilities {
+        private final String cameraId;
+        private final int lensFacing;
+        private final int previewWidth;
+        private final int previewHeight;
+        private final int analysisWidth;
+        private final int analysisHeight;
+        private final int pictureWidth;
+        private final int pictureHeight;
+        private final List<Range<Integer>> fpsRanges;
+
+        /**
+         * @param cameraId   相机ID
+         * @param lensFacing 镜头朝向
+         * @param fpsRanges  支持的帧率范围，单位与相机API一致（Camera1为帧率×1000）
+         */
+        public Capabilities(@NonNull String cameraId, int lensFacing,
+                            int previewWidth, int previewHeight,
+                            int analysisWidth, int analysisHeight,
+                            int pictureWidth, int pictureHeight,
+                            @NonNull List<Range<Integer>> fpsRanges) {
+            if (cameraId.indexOf(';') >= 0) {
+                throw new IllegalArgumentException("Invalid camera id: " + cameraId);
+            }
+            this.cameraId = cameraId;
+            this.lensFacing = lensFacing;
+            this.previewWidth = previewWidth;
+            this.previewHeight = previewHeight;
+            this.analysisWidth = analysisWidth;
+            this.analysisHeight = analysisHeight;
+            this.pictureWidth = pictureWidth;
+            this.pictureHeight = pictureHeight;
+            this.fpsRanges = Collections.unmodifiableList(new ArrayList<>(fpsRanges));
+        }
+
+        @NonNull
+        public String getCameraId() {
+            return cameraId;
+        }
+
+        public int getLensFacing() {
+            return lensFacing;
+        }
+
+        public int getPreviewWidth() {
+            return previewWidth;
+        }
+
+        public int getPreviewHeight() {
+            return previewHeight;
+        }
+
+        public int getAnalysisWidth() {
+            return analysisWidth;
+        }
+
+        public int getAnalysisHeight() {
+            return analysisHeight;
+        }
+
+        public int getPictureWidth() {
+            return pictureWidth;
+        }
+
+        public int getPictureHeight() {
+            return pictureHeight;
+        }
+
+        @NonNull
+        public List<Range<Integer>> getFpsRanges() {
+            return fpsRanges;
+        }
+
+        /**
+         * 上限最高的帧率范围中下限最高的一个
+         *
+         * @return 没有帧率范围时返回{@code null}
+         */
+        @Nullable
+        public Range<Integer> getHighestFpsRange() {
+            Range<Integer> best = null;
+            for (Range<Integer> range : fpsRanges) {
+                if (best == null || range.getUpper() > best.getUpper()
+                        || (range.getUpper().equals(best.getUpper()) && range.getLower() > best.getLower())) {
+                    best = range;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * 编码为：{@code id;facing;预览宽x高;分析宽x高;拍照宽x高;下限-上限,下限-上限...}
+         */
+        @NonNull
+        String encode() {
+            StringBuilder builder = new StringBuilder()
+                    .append(cameraId).append(';')
+                    .append(lensFacing).append(';')
+                    .append(previewWidth).append('x').append(previewHeight).append(';')
+                    .append(analysisWidth).append('x').append(analysisHeight).append(';')
+                    .append(pictureWidth).append('x').append(pictureHeight).append(';');
+            for (int i = 0; i < fpsRanges.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(fpsRanges.get(i).getLower()).append('-').append(fpsRanges.get(i).getUpper());
+            }
+            return builder.toString();
+        }
+
+        @Nullable
+        static Capabilities decode(@NonNull String value) {
+            try {
+                String[] fields = value.split(";", -1);
+                if (fields.length != 6) {
+                    return null;
+                }
+                int[] preview = parseSize(fields[2]);
+                int[] analysis = parseSize(fields[3]);
+                int[] picture = parseSize(fields[4]);
+                List<Range<Integer>> fpsRanges = new ArrayList<>();
+                if (!fields[5].isEmpty()) {
+                    for (String range : fields[5].split(",")) {
+                        int separator = range.indexOf('-');
+                        fpsRanges.add(new Range<>(Integer.parseInt(range.substring(0, separator)),
+                                Integer.parseInt(range.substring(separator + 1))));
+                    }
+                }
+                return new Capabilities(fields[0], Integer.parseInt(fields[1]),
+                        preview[0], preview[1], analysis[0], analysis[1], picture[0], picture[1], fpsRanges);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        @NonNull
+        private static int[] parseSize(@NonNull String size) {
+            int separator = size.indexOf('x');
+            return new int[]{Integer.parseInt(size.substring(0, separator)), Integer.parseInt(size.substring(separator + 1))};
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Capabilities{" + encode() + '}';
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.android.detection.detection.util;
+
+import android.graphics.ImageFormat;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 帧缓冲池：按帧的宽、高及图像格式复用图像数据缓冲区，避免每帧分配数MB的数组
+ * <p>
+ * 池的容量有上限，超出上限归还的缓冲区会直接丢弃交由GC回收；同时统计命中、未命中及丢弃次数，便于调整池的大小。
+ * <p>
+ * 除堆上的数组外，也可借出直接缓冲区（{@link ByteBuffer#allocateDirect(int)}），其内存位于Java堆外，不增加GC的负担；
+ * 两种缓冲区分开缓存，共用同一个容量上限。
+ */
+@SuppressWarnings("unused")
+public class FrameBufferPool {
+
+    /**
+     * 默认最多缓存的缓冲区数量
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 4;
+
+    private final int maxPooledBuffers;
+
+    private final Map<Key, ArrayDeque<byte[]>> pool = new HashMap<>();
+    private final Map<Key, ArrayDeque<ByteBuffer>> directPool = new HashMap<>();
+
+    private int pooledBuffers;
+
+    private long hitCount;
+    private long missCount;
+    private long dropCount;
+    private long allocatedBytes;
+
+    public FrameBufferPool() {
+        this(DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    /**
+     * @param maxPooledBuffers 最多缓存的缓冲区数量（所有尺寸合计）
+     */
+    public FrameBufferPool(int maxPooledBuffers) {
+        if (maxPooledBuffers < 0) {
+            throw new IllegalArgumentException("maxPooledBuffers must be >= 0");
+        }
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * 借出一个缓冲区；池中没有对应尺寸的缓冲区时会新分配一个
+     *
+     * @param width       帧的宽
+     * @param height      帧的高
+     * @param imageFormat 图像格式：{@link ImageFormat}
+     * @return 缓冲区，长度为 {@link #getBufferSize(int, int, int)}
+     */
+    @NonNull
+    public synchronized byte[] acquire(int width, int height, int imageFormat) {
+        ArrayDeque<byte[]> buffers = pool.get(new Key(width, height, imageFormat));
+        byte[] buffer = buffers != null ? buffers.poll() : null;
+        if (buffer != null) {
+            pooledBuffers--;
+            hitCount++;
+            return buffer;
+        }
+        missCount++;
+        int size = getBufferSize(width, height, imageFormat);
+        allocatedBytes += size;
+        return new byte[size];
+    }
+
+    /**
+     * 归还缓冲区；尺寸不符或池已满时丢弃
+     *
+     * @param width       帧的宽
+     * @param height      帧的高
+     * @param imageFormat 图像格式：{@link ImageFormat}
+     * @param buffer      通过 {@link #acquire(int, int, int)} 借出的缓冲区
+     */
+    public synchronized void release(int width, int height, int imageFormat, @NonNull byte[] buffer) {
+        if (buffer.length != getBufferSize(width, height, imageFormat) || pooledBuffers >= maxPooledBuffers) {
+            dropCount++;
+            return;
+        }
+        Key key = new Key(width, height, imageFormat);
+        ArrayDeque<byte[]> buffers = pool.get(key);
+        if (buffers == null) {
+            buffers = new ArrayDeque<>();
+            pool.put(key, buffers);
+        }
+        buffers.offer(buffer);
+        pooledBuffers++;
+    }
+
+    /**
+     * 借出一个直接缓冲区；池中没有对应尺寸的缓冲区时会新分配一个
+     *
+     * @param width       帧的宽
+     * @param height      帧的高
+     * @param imageFormat 图像格式：{@link ImageFormat}
+     * @return 直接缓冲区，容量为 {@link #getBufferSize(int, int, int)}
+     */
+    @NonNull
+    public synchronized ByteBuffer acquireDirect(int width, int height, int imageFormat) {
+        ArrayDeque<ByteBuffer> buffers = directPool.get(new Key(width, height, imageFormat));
+        ByteBuffer buffer = buffers != null ? buffers.poll() : null;
+        if (buffer != null) {
+            pooledBuffers--;
+            hitCount++;
+            buffer.clear();
+            return buffer;
+        }
+        missCount++;
+        int size = getBufferSize(width, height, imageFormat);
+        allocatedBytes += size;
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    /**
+     * 归还直接缓冲区；尺寸不符或池已满时丢弃
+     *
+     * @param width       帧的宽
+     * @param height      帧的高
+     * @param imageFormat 图像格式：{@link ImageFormat}
+     * @param buffer      通过 {@link #acquireDirect(int, int, int)} 借出的缓冲区
+     */
+    public synchronized void releaseDirect(int width, int height, int imageFormat, @NonNull ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != getBufferSize(width, height, imageFormat) || pooledBuffers >= maxPooledBuffers) {
+            dropCount++;
+            return;
+        }
+        Key key = new Key(width, height, imageFormat);
+        ArrayDeque<ByteBuffer> buffers = directPool.get(key);
+        if (buffers == null) {
+            buffers = new ArrayDeque<>();
+            directPool.put(key, buffers);
+        }
+        buffers.offer(buffer);
+        pooledBuffers++;
+    }
+
+    /**
+     * 清空池中缓存的缓冲区
+     */
+    public synchronized void clear() {
+        pool.clear();
+        directPool.clear();
+        pooledBuffers = 0;
+    }
+
+    /**
+     * 命中次数：借出时直接复用了池中缓冲区的次数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 未命中次数：借出时池中没有可用缓冲区而新分配的次数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 丢弃次数：归还时因池已满或尺寸不符而丢弃的次数
+     */
+    public synchronized long getDropCount() {
+        return dropCount;
+    }
+
+    /**
+     * 因未命中而新分配的字节总数
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * 当前池中缓存的缓冲区数量
+     */
+    public synchronized int getPooledBufferCount() {
+        return pooledBuffers;
+    }
+
+    /**
+     * 计算指定尺寸及格式的帧所需的缓冲区大小
+     *
+     * @param width       帧的宽
+     * @param height      帧的高
+     * @param imageFormat 图像格式：{@link ImageFormat}
+     * @return 缓冲区大小
+     */
+    public static int getBufferSize(int width, int height, int imageFormat) {
+        int imageSize = width * height;
+        if (imageFormat == ImageFormat.NV21) {
+            return imageSize + 2 * (imageSize / 4);
+        }
+        return imageSize * ImageFormat.getBitsPerPixel(imageFormat) / 8;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "FrameBufferPool{" +
+                "hit=" + hitCount +
+                ", miss=" + missCount +
+                ", drop=" + dropCount +
+                ", pooled=" + pooledBuffers +
+                '}';
+    }
+
+    private static final class Key {
+        private final int width;
+        private final int height;
+        private final int imageFormat;
+
+        Key(int width, int height, int imageFormat) {
+            this.width = width;
+            this.height = height;
+            this.imageFormat = imageFormat;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && imageFormat == key.imageFormat;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * width + height) + imageFormat;
+        }
+    }
+}
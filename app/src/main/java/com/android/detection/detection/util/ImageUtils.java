@@ -1,11 +1,15 @@
 package com.android.detection.detection.util;
 
+import android.graphics.Rect;
 import android.media.Image;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.camera.core.ImageProxy;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 图片工具类
@@ -17,6 +21,34 @@ public class ImageUtils {
         throw new AssertionError();
     }
 
+    /**
+     * 行缓冲区：UV平面非NV21交错布局时逐行读取使用，按线程复用
+     */
+    private static final ThreadLocal<byte[][]> LINE_BUFFERS = new ThreadLocal<>();
+
+    /**
+     * 输出行缓冲区：写入直接缓冲区时先在此交错一行色度数据，按线程复用
+     */
+    private static final ThreadLocal<byte[]> OUTPUT_LINE_BUFFER = new ThreadLocal<>();
+
+    /**
+     * 缩小时使用的行缓冲区及累加缓冲区，按线程复用
+     */
+    private static final ThreadLocal<ScaleBuffers> SCALE_BUFFERS = new ThreadLocal<>();
+
+    /**
+     * 当前相机会话已确定的UV平面布局；重新配置相机时通过 {@link #resetPlaneLayout()} 清除
+     */
+    private static volatile PlaneLayout lastPlaneLayout;
+
+    /**
+     * 清除已确定的UV平面布局：切换相机、重新创建 {@link android.media.ImageReader} 或重新绑定 {@code ImageAnalysis} 时调用，
+     * 避免沿用上一路相机输出的布局
+     */
+    public static void resetPlaneLayout() {
+        lastPlaneLayout = null;
+    }
+
     /**
      * YUV420_888转NV21
      *
@@ -24,98 +56,752 @@ public class ImageUtils {
      * @param nv21  NV21 format bytes
      */
     public static void yuv_420_888toNv21(@NonNull ImageProxy image, @NonNull byte[] nv21) {
-        ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
-        ImageProxy.PlaneProxy uPlane = image.getPlanes()[1];
-        ImageProxy.PlaneProxy vPlane = image.getPlanes()[2];
+        yuv_420_888toNv21(image, nv21, null);
+    }
+
+    /**
+     * YUV420_888转NV21
+     *
+     * @param image {@link ImageProxy}
+     * @param nv21  NV21 format bytes
+     * @param pool  并行转换使用的线程池，为空时串行转换
+     */
+    public static void yuv_420_888toNv21(@NonNull ImageProxy image, @NonNull byte[] nv21, @Nullable ForkJoinPool pool) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), nv21, pool);
+    }
+
+    /**
+     * YUV420_888转NV21
+     *
+     * @param image {@link Image}
+     * @param nv21  NV21 format bytes
+     */
+    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull byte[] nv21) {
+        yuv_420_888toNv21(image, nv21, null);
+    }
+
+    /**
+     * YUV420_888转NV21
+     *
+     * @param image {@link Image}
+     * @param nv21  NV21 format bytes
+     * @param pool  并行转换使用的线程池，为空时串行转换
+     */
+    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull byte[] nv21, @Nullable ForkJoinPool pool) {
+        Image.Plane[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), nv21, pool);
+    }
+
+    /**
+     * YUV420_888转NV21
+     * <p>
+     * 当U、V平面实际为同一块NV21交错（VUVU...）缓冲区时，色度数据整块复制；Y平面无行填充时同样整块复制；
+     * 否则退化为逐行交错复制。
+     *
+     * @param yBuffer      Y平面
+     * @param yRowStride   Y平面行跨度
+     * @param uBuffer      U平面
+     * @param uRowStride   U平面行跨度
+     * @param uPixelStride U平面像素跨度
+     * @param vBuffer      V平面
+     * @param vRowStride   V平面行跨度
+     * @param vPixelStride V平面像素跨度
+     * @param width        图像的宽
+     * @param height       图像的高
+     * @param nv21         NV21 format bytes
+     */
+    public static void yuv_420_888toNv21(
+            @NonNull ByteBuffer yBuffer, int yRowStride,
+            @NonNull ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+            @NonNull ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+            int width, int height, @NonNull byte[] nv21) {
+        yuv_420_888toNv21(yBuffer, yRowStride, uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride,
+                width, height, nv21, null);
+    }
 
-        ByteBuffer yBuffer = yPlane.getBuffer();
-        ByteBuffer uBuffer = uPlane.getBuffer();
-        ByteBuffer vBuffer = vPlane.getBuffer();
+    /**
+     * YUV420_888转NV21；指定 {@link ForkJoinPool} 且图像不小于1280x720时，
+     * 将Y及UV平面按行分条并行转换，否则串行转换
+     *
+     * @param pool 并行转换使用的线程池，为空时串行转换
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, byte[])
+     */
+    public static void yuv_420_888toNv21(
+            @NonNull ByteBuffer yBuffer, int yRowStride,
+            @NonNull ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+            @NonNull ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+            int width, int height, @NonNull byte[] nv21, @Nullable ForkJoinPool pool) {
         yBuffer.rewind();
         uBuffer.rewind();
         vBuffer.rewind();
 
-        int ySize = yBuffer.remaining();
+        int imageSize = width * height;
+        int chromaHeight = height / 2;
+        int chromaWidth = width / 2;
+        boolean nv21Planes = areUVPlanesNV21(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride, chromaWidth, chromaHeight);
 
-        int position = 0;
+        if (!RowStripes.isParallel(pool, width, height)) {
+            copyLumaPlane(yBuffer, yRowStride, width, height, nv21);
+            if (nv21Planes) {
+                copyInterleavedChroma(uBuffer, vBuffer, vRowStride, chromaWidth, chromaHeight, 0, chromaHeight, nv21, imageSize);
+            } else {
+                interleaveChroma(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride,
+                        chromaWidth, 0, chromaHeight, nv21, imageSize);
+            }
+            return;
+        }
+
+        // 按色度行分条，每条同时负责对应的两行Y；每条使用独立的缓冲区视图，互不影响读取位置
+        RowStripes.run(pool, chromaHeight, (start, end) -> {
+            int lumaEnd = end == chromaHeight ? height : 2 * end;
+            copyLumaRows(yBuffer.duplicate(), yRowStride, width, 2 * start, lumaEnd, nv21);
+            if (nv21Planes) {
+                copyInterleavedChroma(uBuffer.duplicate(), vBuffer.duplicate(), vRowStride, chromaWidth, chromaHeight, start, end, nv21, imageSize);
+            } else {
+                interleaveChroma(uBuffer.duplicate(), uRowStride, uPixelStride, vBuffer.duplicate(), vRowStride, vPixelStride,
+                        chromaWidth, start, end, nv21, imageSize);
+            }
+        });
+    }
+
+    /**
+     * YUV420_888转NV21，写入直接缓冲区
+     *
+     * @param image {@link ImageProxy}
+     * @param nv21  NV21 format direct buffer
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, ByteBuffer)
+     */
+    public static void yuv_420_888toNv21(@NonNull ImageProxy image, @NonNull ByteBuffer nv21) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), nv21);
+    }
+
+    /**
+     * YUV420_888转NV21，写入直接缓冲区
+     *
+     * @param image {@link Image}
+     * @param nv21  NV21 format direct buffer
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, ByteBuffer)
+     */
+    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull ByteBuffer nv21) {
+        Image.Plane[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), nv21);
+    }
+
+    /**
+     * YUV420_888转NV21，写入直接缓冲区（{@link ByteBuffer#allocateDirect(int)}）
+     * <p>
+     * 相机的平面本身就是直接缓冲区，Y平面及NV21交错的色度数据按行在堆外直接复制，不经过Java堆；
+     * 仅色度平面需要逐像素交错时，才借助一行大小的堆上缓冲区。转换完成后 {@code nv21} 的位置为0，上限为NV21数据的大小。
+     *
+     * @param nv21 NV21 format direct buffer，容量不小于NV21数据的大小
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, byte[])
+     */
+    public static void yuv_420_888toNv21(
+            @NonNull ByteBuffer yBuffer, int yRowStride,
+            @NonNull ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+            @NonNull ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+            int width, int height, @NonNull ByteBuffer nv21) {
+        int imageSize = width * height;
+        int chromaHeight = height / 2;
+        int chromaWidth = width / 2;
+        int size = imageSize + 2 * chromaWidth * chromaHeight;
+        if (nv21.capacity() < size) {
+            throw new IllegalArgumentException("nv21 buffer is too small: " + nv21.capacity() + " < " + size);
+        }
+        yBuffer.rewind();
+        uBuffer.rewind();
+        vBuffer.rewind();
+        nv21.clear();
 
-        // Add the full y buffer to the array. If rowStride > 1, some padding may be skipped.
-        for (int row = 0; row < image.getHeight(); row++) {
-            yBuffer.get(nv21, position, image.getWidth());
-            position += image.getWidth();
-            yBuffer.position(Math.min(ySize, yBuffer.position() - image.getWidth() + yPlane.getRowStride()));
+        putRows(yBuffer.duplicate(), yRowStride, width, height, nv21);
+        if (areUVPlanesNV21(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride, chromaWidth, chromaHeight)) {
+            putInterleavedChroma(uBuffer, vBuffer.duplicate(), vRowStride, chromaWidth, chromaHeight, nv21);
+        } else {
+            byte[][] lineBuffers = obtainLineBuffers(vRowStride, uRowStride);
+            byte[] line = obtainLineBuffer(2 * chromaWidth);
+            for (int row = 0; row < chromaHeight; row++) {
+                interleaveChromaRow(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride,
+                        chromaWidth, row, lineBuffers[0], lineBuffers[1], line, 0);
+                nv21.put(line, 0, 2 * chromaWidth);
+            }
         }
+        nv21.flip();
+    }
 
-        int chromaHeight = image.getHeight() / 2;
-        int chromaWidth = image.getWidth() / 2;
-        int vRowStride = vPlane.getRowStride();
-        int uRowStride = uPlane.getRowStride();
-        int vPixelStride = vPlane.getPixelStride();
-        int uPixelStride = uPlane.getPixelStride();
+    /**
+     * 按行将 {@code src} 复制到 {@code dst} 的当前位置，跳过行填充；无行填充时整块复制
+     */
+    private static void putRows(ByteBuffer src, int rowStride, int lineSize, int rows, ByteBuffer dst) {
+        int limit = src.limit();
+        if (rowStride == lineSize && limit >= lineSize * rows) {
+            src.limit(lineSize * rows).position(0);
+            dst.put(src);
+            return;
+        }
+        for (int row = 0; row < rows; row++) {
+            int start = row * rowStride;
+            src.limit(limit).position(start);
+            src.limit(start + lineSize);
+            dst.put(src);
+        }
+    }
 
-        // Interleave the u and v frames, filling up the rest of the buffer. Use two line buffers to
-        // perform faster bulk gets from the byte buffers.
-        byte[] vLineBuffer = new byte[vRowStride];
-        byte[] uLineBuffer = new byte[uRowStride];
+    /**
+     * U、V平面为同一块NV21交错缓冲区时，按行将V平面（VUVU...）复制到 {@code dst}，最后一个U值从U平面补齐
+     */
+    private static void putInterleavedChroma(ByteBuffer uBuffer, ByteBuffer vBuffer, int rowStride,
+                                             int chromaWidth, int chromaHeight, ByteBuffer dst) {
+        int lineSize = 2 * chromaWidth;
+        int limit = vBuffer.limit();
         for (int row = 0; row < chromaHeight; row++) {
-            vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
-            uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
-            int vLineBufferPosition = 0;
-            int uLineBufferPosition = 0;
+            int start = row * rowStride;
+            int length = Math.min(lineSize, limit - start);
+            vBuffer.limit(limit).position(start);
+            vBuffer.limit(start + length);
+            dst.put(vBuffer);
+            if (length < lineSize) {
+                // The V buffer does not contain the last U value.
+                dst.put(uBuffer.get(start + lineSize - 2));
+            }
+        }
+    }
+
+    /**
+     * YUV420_888裁剪后转NV21：只读取裁剪区域内的数据
+     *
+     * @param image {@link ImageProxy}
+     * @param crop  裁剪区域（传感器坐标），参见 {@link #checkCropRect(Rect, int, int)}
+     * @param nv21  NV21 format bytes，大小至少为裁剪区域的NV21大小
+     */
+    public static void yuv_420_888toNv21(@NonNull ImageProxy image, @NonNull Rect crop, @NonNull byte[] nv21) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), crop, nv21);
+    }
+
+    /**
+     * YUV420_888裁剪后转NV21：只读取裁剪区域内的数据
+     *
+     * @param image {@link Image}
+     * @param crop  裁剪区域（传感器坐标），参见 {@link #checkCropRect(Rect, int, int)}
+     * @param nv21  NV21 format bytes，大小至少为裁剪区域的NV21大小
+     */
+    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull Rect crop, @NonNull byte[] nv21) {
+        Image.Plane[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), crop, nv21);
+    }
+
+    /**
+     * YUV420_888裁剪后转NV21：只读取裁剪区域内的数据
+     *
+     * @param width  图像的宽
+     * @param height 图像的高
+     * @param crop   裁剪区域（传感器坐标），参见 {@link #checkCropRect(Rect, int, int)}
+     * @param nv21   NV21 format bytes，大小至少为裁剪区域的NV21大小
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, byte[])
+     */
+    public static void yuv_420_888toNv21(
+            @NonNull ByteBuffer yBuffer, int yRowStride,
+            @NonNull ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+            @NonNull ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+            int width, int height, @NonNull Rect crop, @NonNull byte[] nv21) {
+        checkCropRect(crop, width, height);
+        yBuffer.rewind();
+        uBuffer.rewind();
+        vBuffer.rewind();
+
+        int cropWidth = crop.width();
+        int cropHeight = crop.height();
+        int position = 0;
+        for (int row = crop.top; row < crop.bottom; row++) {
+            yBuffer.position(row * yRowStride + crop.left);
+            yBuffer.get(nv21, position, cropWidth);
+            position += cropWidth;
+        }
+
+        int chromaLeft = crop.left / 2;
+        int chromaTop = crop.top / 2;
+        int chromaWidth = cropWidth / 2;
+        int chromaHeight = cropHeight / 2;
+        int lineSize = 2 * chromaWidth;
+        if (areUVPlanesNV21(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride, width / 2, height / 2)) {
+            for (int row = chromaTop; row < chromaTop + chromaHeight; row++) {
+                int start = row * vRowStride + 2 * chromaLeft;
+                int length = Math.min(lineSize, vBuffer.limit() - start);
+                vBuffer.position(start);
+                vBuffer.get(nv21, position, length);
+                if (length < lineSize) {
+                    // The V buffer does not contain the last U value.
+                    nv21[position + lineSize - 1] = uBuffer.get(start + lineSize - 2);
+                }
+                position += lineSize;
+            }
+            return;
+        }
+        byte[][] lineBuffers = obtainLineBuffers(vRowStride, uRowStride);
+        byte[] vLineBuffer = lineBuffers[0];
+        byte[] uLineBuffer = lineBuffers[1];
+        for (int row = chromaTop; row < chromaTop + chromaHeight; row++) {
+            vBuffer.position(row * vRowStride + chromaLeft * vPixelStride);
+            uBuffer.position(row * uRowStride + chromaLeft * uPixelStride);
+            vBuffer.get(vLineBuffer, 0, Math.min((chromaWidth - 1) * vPixelStride + 1, vBuffer.remaining()));
+            uBuffer.get(uLineBuffer, 0, Math.min((chromaWidth - 1) * uPixelStride + 1, uBuffer.remaining()));
             for (int col = 0; col < chromaWidth; col++) {
-                nv21[position++] = vLineBuffer[vLineBufferPosition];
-                nv21[position++] = uLineBuffer[uLineBufferPosition];
-                vLineBufferPosition += vPixelStride;
-                uLineBufferPosition += uPixelStride;
+                nv21[position++] = vLineBuffer[col * vPixelStride];
+                nv21[position++] = uLineBuffer[col * uPixelStride];
             }
         }
     }
 
-    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull byte[] nv21) {
+    /**
+     * YUV420_888裁剪并缩小后转NV21：只读取裁剪区域内的数据，按 {@code scale}x{@code scale} 的块取平均值（box filter）
+     *
+     * @param image {@link ImageProxy}
+     * @param crop  裁剪区域（传感器坐标），宽高需为 {@code 2 * scale} 的整数倍
+     * @param scale 缩小倍数；为1时只裁剪
+     * @param nv21  NV21 format bytes，大小至少为缩小后的NV21大小
+     */
+    public static void yuv_420_888toNv21(@NonNull ImageProxy image, @NonNull Rect crop, int scale, @NonNull byte[] nv21) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), crop, scale, nv21);
+    }
+
+    /**
+     * YUV420_888裁剪并缩小后转NV21：只读取裁剪区域内的数据，按 {@code scale}x{@code scale} 的块取平均值（box filter）
+     *
+     * @param image {@link Image}
+     * @param crop  裁剪区域（传感器坐标），宽高需为 {@code 2 * scale} 的整数倍
+     * @param scale 缩小倍数；为1时只裁剪
+     * @param nv21  NV21 format bytes，大小至少为缩小后的NV21大小
+     */
+    public static void yuv_420_888toNv21(@NonNull Image image, @NonNull Rect crop, int scale, @NonNull byte[] nv21) {
         Image.Plane[] planes = image.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
+        yuv_420_888toNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[2].getPixelStride(),
+                image.getWidth(), image.getHeight(), crop, scale, nv21);
+    }
 
+    /**
+     * YUV420_888裁剪并缩小后转NV21：只读取裁剪区域内的数据，按 {@code scale}x{@code scale} 的块取平均值（box filter），
+     * Y平面与VU平面分别缩小，直接写入较小的缓冲区，不产生完整分辨率的中间数据
+     *
+     * @param width  图像的宽
+     * @param height 图像的高
+     * @param crop   裁剪区域（传感器坐标），宽高需为 {@code 2 * scale} 的整数倍
+     * @param scale  缩小倍数；为1时只裁剪
+     * @param nv21   NV21 format bytes，大小至少为缩小后的NV21大小
+     * @see #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, Rect, byte[])
+     */
+    public static void yuv_420_888toNv21(
+            @NonNull ByteBuffer yBuffer, int yRowStride,
+            @NonNull ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+            @NonNull ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+            int width, int height, @NonNull Rect crop, int scale, @NonNull byte[] nv21) {
+        if (scale == 1) {
+            yuv_420_888toNv21(yBuffer, yRowStride, uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride,
+                    width, height, crop, nv21);
+            return;
+        }
+        checkCropRect(crop, width, height);
+        if (scale < 1 || crop.width() % (2 * scale) != 0 || crop.height() % (2 * scale) != 0) {
+            throw new IllegalArgumentException("crop " + crop + " must be a multiple of 2 * scale " + scale);
+        }
         yBuffer.rewind();
         uBuffer.rewind();
         vBuffer.rewind();
 
-        int ySize = yBuffer.remaining();
-        int uSize = uBuffer.remaining();
-        int vSize = vBuffer.remaining();
+        int outWidth = crop.width() / scale;
+        int outHeight = crop.height() / scale;
+        int area = scale * scale;
+        int rounding = area / 2;
+        int lineSize = Math.max(crop.width(), (crop.width() / 2 - 1) * Math.max(uPixelStride, vPixelStride) + 1);
+        ScaleBuffers buffers = obtainScaleBuffers(lineSize, outWidth);
+        byte[] line = buffers.line;
+        int[] sums = buffers.sums;
+        int[] uSums = buffers.uSums;
+
+        int position = 0;
+        for (int outRow = 0; outRow < outHeight; outRow++) {
+            Arrays.fill(sums, 0, outWidth, 0);
+            for (int i = 0; i < scale; i++) {
+                int row = crop.top + outRow * scale + i;
+                readRow(yBuffer, row * yRowStride + crop.left, crop.width(), 1, line);
+                accumulate(line, 1, outWidth, scale, sums);
+            }
+            for (int col = 0; col < outWidth; col++) {
+                nv21[position++] = (byte) ((sums[col] + rounding) / area);
+            }
+        }
+
+        int chromaLeft = crop.left / 2;
+        int chromaTop = crop.top / 2;
+        int chromaWidth = crop.width() / 2;
+        int outChromaWidth = outWidth / 2;
+        int outChromaHeight = outHeight / 2;
+        for (int outRow = 0; outRow < outChromaHeight; outRow++) {
+            Arrays.fill(sums, 0, outChromaWidth, 0);
+            Arrays.fill(uSums, 0, outChromaWidth, 0);
+            for (int i = 0; i < scale; i++) {
+                int row = chromaTop + outRow * scale + i;
+                readRow(vBuffer, row * vRowStride + chromaLeft * vPixelStride, chromaWidth, vPixelStride, line);
+                accumulate(line, vPixelStride, outChromaWidth, scale, sums);
+                readRow(uBuffer, row * uRowStride + chromaLeft * uPixelStride, chromaWidth, uPixelStride, line);
+                accumulate(line, uPixelStride, outChromaWidth, scale, uSums);
+            }
+            for (int col = 0; col < outChromaWidth; col++) {
+                nv21[position++] = (byte) ((sums[col] + rounding) / area);
+                nv21[position++] = (byte) ((uSums[col] + rounding) / area);
+            }
+        }
+    }
+
+    /**
+     * 裁剪并缩小NV21数据，参见 {@link #yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, Rect, int, byte[])}
+     *
+     * @param src    NV21 format bytes
+     * @param width  图像的宽
+     * @param height 图像的高
+     * @param crop   裁剪区域，宽高需为 {@code 2 * scale} 的整数倍
+     * @param scale  缩小倍数；为1时只裁剪
+     * @param dst    缩小后的NV21 format bytes，大小至少为缩小后的NV21大小
+     */
+    public static void cropNv21(@NonNull byte[] src, int width, int height, @NonNull Rect crop, int scale, @NonNull byte[] dst) {
+        if (scale == 1) {
+            cropNv21(src, width, height, crop, dst);
+            return;
+        }
+        int imageSize = width * height;
+        int chromaSize = width * (height / 2);
+        yuv_420_888toNv21(
+                ByteBuffer.wrap(src, 0, imageSize).slice(), width,
+                ByteBuffer.wrap(src, imageSize + 1, chromaSize - 1).slice(), width, 2,
+                ByteBuffer.wrap(src, imageSize, chromaSize).slice(), width, 2,
+                width, height, crop, scale, dst);
+    }
+
+    /**
+     * 读取一行中按像素跨度排列的 {@code count} 个像素
+     */
+    private static void readRow(ByteBuffer buffer, int start, int count, int pixelStride, byte[] line) {
+        buffer.position(start);
+        buffer.get(line, 0, Math.min((count - 1) * pixelStride + 1, buffer.remaining()));
+    }
 
+    /**
+     * 将一行像素按每 {@code scale} 个一组累加到 {@code sums}
+     */
+    private static void accumulate(byte[] line, int pixelStride, int outCount, int scale, int[] sums) {
+        if (scale == 2) {
+            // 最常用的2倍缩小展开内层循环
+            for (int col = 0, index = 0; col < outCount; col++, index += 2 * pixelStride) {
+                sums[col] += (line[index] & 0xFF) + (line[index + pixelStride] & 0xFF);
+            }
+            return;
+        }
+        int index = 0;
+        for (int col = 0; col < outCount; col++) {
+            int sum = 0;
+            for (int i = 0; i < scale; i++) {
+                sum += line[index] & 0xFF;
+                index += pixelStride;
+            }
+            sums[col] += sum;
+        }
+    }
+
+    private static ScaleBuffers obtainScaleBuffers(int lineSize, int outWidth) {
+        ScaleBuffers buffers = SCALE_BUFFERS.get();
+        if (buffers == null || buffers.line.length < lineSize || buffers.sums.length < outWidth) {
+            buffers = new ScaleBuffers(lineSize, outWidth);
+            SCALE_BUFFERS.set(buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * 裁剪NV21数据
+     *
+     * @param src    NV21 format bytes
+     * @param width  图像的宽
+     * @param height 图像的高
+     * @param crop   裁剪区域，参见 {@link #checkCropRect(Rect, int, int)}
+     * @param dst    裁剪后的NV21 format bytes，大小至少为裁剪区域的NV21大小
+     */
+    public static void cropNv21(@NonNull byte[] src, int width, int height, @NonNull Rect crop, @NonNull byte[] dst) {
+        checkCropRect(crop, width, height);
+        int cropWidth = crop.width();
         int position = 0;
+        for (int row = crop.top; row < crop.bottom; row++) {
+            System.arraycopy(src, row * width + crop.left, dst, position, cropWidth);
+            position += cropWidth;
+        }
+        int imageSize = width * height;
+        for (int row = crop.top / 2; row < crop.bottom / 2; row++) {
+            System.arraycopy(src, imageSize + row * width + crop.left, dst, position, cropWidth);
+            position += cropWidth;
+        }
+    }
 
-        // Add the full y buffer to the array. If rowStride > 1, some padding may be skipped.
-        for (int row = 0; row < image.getHeight(); row++) {
-            yBuffer.get(nv21, position, image.getWidth());
-            position += image.getWidth();
-            yBuffer.position(Math.min(ySize, yBuffer.position() - image.getWidth() + planes[0].getRowStride()));
+    /**
+     * 检查裁剪区域：需位于图像内，且各边均为偶数（与YUV420色度采样对齐）
+     *
+     * @param crop   裁剪区域
+     * @param width  图像的宽
+     * @param height 图像的高
+     */
+    public static void checkCropRect(@NonNull Rect crop, int width, int height) {
+        if (crop.left < 0 || crop.top < 0 || crop.right > width || crop.bottom > height || crop.isEmpty()) {
+            throw new IllegalArgumentException("crop " + crop + " out of bounds " + width + "x" + height);
         }
+        if (((crop.left | crop.top | crop.right | crop.bottom) & 1) != 0) {
+            throw new IllegalArgumentException("crop " + crop + " must be aligned to even coordinates");
+        }
+    }
 
-        int chromaHeight = image.getHeight() / 2;
-        int chromaWidth = image.getWidth() / 2;
-        int vRowStride = vBuffer.remaining() / chromaHeight;
-        int uRowStride = uBuffer.remaining() / chromaHeight;
-        int vPixelStride = planes[2].getPixelStride();
-        int uPixelStride = planes[1].getPixelStride();
+    /**
+     * 复制Y平面；无行填充时整块复制
+     */
+    private static void copyLumaPlane(ByteBuffer yBuffer, int rowStride, int width, int height, byte[] nv21) {
+        int imageSize = width * height;
+        if (rowStride == width && yBuffer.remaining() >= imageSize) {
+            yBuffer.get(nv21, 0, imageSize);
+            return;
+        }
+        copyLumaRows(yBuffer, rowStride, width, 0, height, nv21);
+    }
 
+    /**
+     * 复制Y平面的 [rowStart, rowEnd) 行，跳过行填充
+     */
+    private static void copyLumaRows(ByteBuffer yBuffer, int rowStride, int width, int rowStart, int rowEnd, byte[] nv21) {
+        int position = rowStart * width;
+        for (int row = rowStart; row < rowEnd; row++) {
+            yBuffer.position(row * rowStride);
+            yBuffer.get(nv21, position, width);
+            position += width;
+        }
+    }
+
+    /**
+     * U、V平面为同一块NV21交错缓冲区时，直接按行整块复制V平面（VUVU...）的 [rowStart, rowEnd) 行，
+     * 最后一个U值从U平面补齐
+     */
+    private static void copyInterleavedChroma(ByteBuffer uBuffer, ByteBuffer vBuffer, int rowStride,
+                                              int chromaWidth, int chromaHeight, int rowStart, int rowEnd,
+                                              byte[] nv21, int offset) {
+        int lineSize = 2 * chromaWidth;
+        if (rowStride == lineSize) {
+            int start = rowStart * lineSize;
+            int size = (rowEnd - rowStart) * lineSize;
+            if (rowEnd == chromaHeight) {
+                // The V buffer does not contain the last U value.
+                size--;
+                nv21[offset + start + size] = uBuffer.get(start + size - 1);
+            }
+            vBuffer.position(start);
+            vBuffer.get(nv21, offset + start, size);
+            return;
+        }
+        int position = offset + rowStart * lineSize;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int start = row * rowStride;
+            int length = Math.min(lineSize, vBuffer.limit() - start);
+            vBuffer.position(start);
+            vBuffer.get(nv21, position, length);
+            if (length < lineSize) {
+                nv21[position + lineSize - 1] = uBuffer.get(start + lineSize - 2);
+            }
+            position += lineSize;
+        }
+    }
+
+    /**
+     * 逐行交错复制U、V平面的 [rowStart, rowEnd) 行；使用按线程复用的行缓冲区进行批量读取
+     */
+    private static void interleaveChroma(ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+                                         ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+                                         int chromaWidth, int rowStart, int rowEnd, byte[] nv21, int offset) {
+        byte[][] lineBuffers = obtainLineBuffers(vRowStride, uRowStride);
+        byte[] vLineBuffer = lineBuffers[0];
+        byte[] uLineBuffer = lineBuffers[1];
+        int position = offset + rowStart * 2 * chromaWidth;
         // Interleave the u and v frames, filling up the rest of the buffer. Use two line buffers to
         // perform faster bulk gets from the byte buffers.
-        byte[] vLineBuffer = new byte[vRowStride];
-        byte[] uLineBuffer = new byte[uRowStride];
-        for (int row = 0; row < chromaHeight; row++) {
-            vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
-            uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
-            int vLineBufferPosition = 0;
-            int uLineBufferPosition = 0;
-            for (int col = 0; col < chromaWidth; col++) {
-                nv21[position++] = vLineBuffer[vLineBufferPosition];
-                nv21[position++] = uLineBuffer[uLineBufferPosition];
-                vLineBufferPosition += vPixelStride;
-                uLineBufferPosition += uPixelStride;
-            }
+        for (int row = rowStart; row < rowEnd; row++) {
+            interleaveChromaRow(uBuffer, uRowStride, uPixelStride, vBuffer, vRowStride, vPixelStride,
+                    chromaWidth, row, vLineBuffer, uLineBuffer, nv21, position);
+            position += 2 * chromaWidth;
+        }
+    }
+
+    /**
+     * 交错复制U、V平面的第 {@code row} 行到 {@code out} 的 {@code offset} 处
+     */
+    private static void interleaveChromaRow(ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+                                            ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+                                            int chromaWidth, int row, byte[] vLineBuffer, byte[] uLineBuffer,
+                                            byte[] out, int offset) {
+        vBuffer.position(row * vRowStride);
+        uBuffer.position(row * uRowStride);
+        vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
+        uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
+        int position = offset;
+        int vLineBufferPosition = 0;
+        int uLineBufferPosition = 0;
+        for (int col = 0; col < chromaWidth; col++) {
+            out[position++] = vLineBuffer[vLineBufferPosition];
+            out[position++] = uLineBuffer[uLineBufferPosition];
+            vLineBufferPosition += vPixelStride;
+            uLineBufferPosition += uPixelStride;
+        }
+    }
+
+    private static byte[] obtainLineBuffer(int size) {
+        byte[] line = OUTPUT_LINE_BUFFER.get();
+        if (line == null || line.length < size) {
+            line = new byte[size];
+            OUTPUT_LINE_BUFFER.set(line);
+        }
+        return line;
+    }
+
+    private static byte[][] obtainLineBuffers(int vRowStride, int uRowStride) {
+        byte[][] lineBuffers = LINE_BUFFERS.get();
+        if (lineBuffers == null || lineBuffers[0].length < vRowStride || lineBuffers[1].length < uRowStride) {
+            lineBuffers = new byte[][]{new byte[vRowStride], new byte[uRowStride]};
+            LINE_BUFFERS.set(lineBuffers);
+        }
+        return lineBuffers;
+    }
+
+    /**
+     * 检测U、V平面是否为同一块NV21交错缓冲区（V平面向后偏移一个字节即为U平面）
+     * <p>
+     * U平面与向后偏移一个字节的V平面内容相同时，整块复制V平面得到的VU数据与逐像素交错的结果一致。
+     * 但色度均匀（如：开始时的灰帧）时，NV12等布局也会相同，此时只对当前帧返回{@code true}，不作为布局的结论；
+     * 只有内容不均匀时的比较结果才会按布局缓存，直到 {@link #resetPlaneLayout()}，避免每帧都完整比较一遍。
+     */
+    private static boolean areUVPlanesNV21(ByteBuffer uBuffer, int uRowStride, int uPixelStride,
+                                           ByteBuffer vBuffer, int vRowStride, int vPixelStride,
+                                           int chromaWidth, int chromaHeight) {
+        if (uPixelStride != 2 || vPixelStride != 2 || uRowStride != vRowStride || uRowStride < 2 * chromaWidth) {
+            return false;
+        }
+        int uSize = uBuffer.remaining();
+        int vSize = vBuffer.remaining();
+        PlaneLayout layout = lastPlaneLayout;
+        if (layout != null && layout.matches(uBuffer.capacity(), vBuffer.capacity(), uSize, vSize, uRowStride, chromaWidth, chromaHeight)) {
+            return layout.nv21;
+        }
+        if (vSize < uRowStride * (chromaHeight - 1) + 2 * chromaWidth - 1) {
+            return false;
+        }
+
+        // Advance the V buffer by 1 byte, since the U buffer will not contain the first V value.
+        ByteBuffer shiftedV = vBuffer.duplicate();
+        shiftedV.position(shiftedV.position() + 1);
+        // Chop off the last byte of the U buffer, since the V buffer will not contain the last U value.
+        ByteBuffer choppedU = uBuffer.duplicate();
+        choppedU.limit(choppedU.limit() - 1);
+        boolean areNV21 = shiftedV.compareTo(choppedU) == 0;
+
+        if (areNV21 && isPeriodic(uBuffer, 2)) {
+            // 色度均匀，无法区分布局
+            return true;
+        }
+        lastPlaneLayout = new PlaneLayout(uBuffer.capacity(), vBuffer.capacity(), uSize, vSize, uRowStride, chromaWidth, chromaHeight, areNV21);
+        return areNV21;
+    }
+
+    /**
+     * 缓冲区剩余的数据是否以 {@code period} 个字节为周期重复
+     */
+    private static boolean isPeriodic(ByteBuffer buffer, int period) {
+        if (buffer.remaining() <= period) {
+            return true;
+        }
+        ByteBuffer head = buffer.duplicate();
+        head.limit(head.limit() - period);
+        ByteBuffer tail = buffer.duplicate();
+        tail.position(tail.position() + period);
+        return head.compareTo(tail) == 0;
+    }
+
+    /**
+     * 缩小时使用的缓冲区
+     */
+    private static final class ScaleBuffers {
+        private final byte[] line;
+        private final int[] sums;
+        private final int[] uSums;
+
+        ScaleBuffers(int lineSize, int outWidth) {
+            this.line = new byte[lineSize];
+            this.sums = new int[outWidth];
+            this.uSums = new int[outWidth];
+        }
+    }
+
+    /**
+     * UV平面布局
+     */
+    private static final class PlaneLayout {
+        private final int uCapacity;
+        private final int vCapacity;
+        private final int uSize;
+        private final int vSize;
+        private final int rowStride;
+        private final int chromaWidth;
+        private final int chromaHeight;
+        private final boolean nv21;
+
+        PlaneLayout(int uCapacity, int vCapacity, int uSize, int vSize, int rowStride, int chromaWidth, int chromaHeight, boolean nv21) {
+            this.uCapacity = uCapacity;
+            this.vCapacity = vCapacity;
+            this.uSize = uSize;
+            this.vSize = vSize;
+            this.rowStride = rowStride;
+            this.chromaWidth = chromaWidth;
+            this.chromaHeight = chromaHeight;
+            this.nv21 = nv21;
+        }
+
+        boolean matches(int uCapacity, int vCapacity, int uSize, int vSize, int rowStride, int chromaWidth, int chromaHeight) {
+            return this.uCapacity == uCapacity && this.vCapacity == vCapacity
+                    && this.uSize == uSize && this.vSize == vSize
+                    && this.rowStride == rowStride
+                    && this.chromaWidth == chromaWidth && this.chromaHeight == chromaHeight;
         }
     }
 }
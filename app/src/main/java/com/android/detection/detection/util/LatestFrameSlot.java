@@ -0,0 +1,138 @@
+package com.android.detection.detection.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 最新帧槽：单生产者/单消费者之间只保留最新一帧的无锁交接
+ * <p>
+ * 生产者（如：ImageReader的回调线程）通过 {@link #offer(Object)} 放入帧，槽中尚未被取走的旧帧会被替换并交给丢弃处理
+ * （如：关闭图像，将缓冲区还给相机）；槽由空变为非空时向消费者执行器提交一次取帧任务，消费者在其中处理取到的帧。
+ * <p>
+ * 帧的交接完全通过 {@link AtomicReference#getAndSet(Object)} 完成，每一帧恰好被消费或丢弃一次；
+ * 放入帧之前的写入对取到该帧的线程可见。消费者执行器需为单线程，以保证帧按顺序处理。
+ *
+ * @param <F> 帧的类型
+ */
+@SuppressWarnings("unused")
+public class LatestFrameSlot<F> {
+
+    private final AtomicReference<F> slot = new AtomicReference<>();
+
+    private final Executor consumerExecutor;
+    private final FrameHandler<F> consumer;
+    private final FrameHandler<F> discarder;
+
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong consumedCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    private final Runnable drainTask = this::drain;
+
+    /**
+     * @param consumerExecutor 消费者执行器，需为单线程
+     * @param consumer         消费者：处理取到的帧，处理完成后负责释放该帧
+     * @param discarder        丢弃处理：释放未被消费的帧
+     */
+    public LatestFrameSlot(@NonNull Executor consumerExecutor, @NonNull FrameHandler<F> consumer, @NonNull FrameHandler<F> discarder) {
+        this.consumerExecutor = consumerExecutor;
+        this.consumer = consumer;
+        this.discarder = discarder;
+    }
+
+    /**
+     * 放入最新帧（仅由生产者线程调用）；替换掉的旧帧立即丢弃
+     *
+     * @param frame 帧
+     */
+    public void offer(@NonNull F frame) {
+        offeredCount.incrementAndGet();
+        F replaced = slot.getAndSet(frame);
+        if (replaced != null) {
+            // 消费者尚未取走旧帧，已有取帧任务在等待执行，无需重复提交
+            discard(replaced);
+            return;
+        }
+        try {
+            consumerExecutor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            clear();
+        }
+    }
+
+    /**
+     * 丢弃槽中尚未被取走的帧，如：相机关闭时
+     */
+    public void clear() {
+        F frame = slot.getAndSet(null);
+        if (frame != null) {
+            discard(frame);
+        }
+    }
+
+    /**
+     * 放入的帧数
+     */
+    public long getOfferedCount() {
+        return offeredCount.get();
+    }
+
+    /**
+     * 被消费的帧数
+     */
+    public long getConsumedCount() {
+        return consumedCount.get();
+    }
+
+    /**
+     * 被替换或清除而丢弃的帧数
+     */
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    /**
+     * 取帧任务：在消费者执行器上取走槽中的帧并处理；帧可能已被 {@link #clear()} 取走
+     */
+    private void drain() {
+        F frame = slot.getAndSet(null);
+        if (frame == null) {
+            return;
+        }
+        consumedCount.incrementAndGet();
+        consumer.handle(frame);
+    }
+
+    private void discard(@NonNull F frame) {
+        discardedCount.incrementAndGet();
+        discarder.handle(frame);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LatestFrameSlot{" +
+                "offered=" + offeredCount.get() +
+                ", consumed=" + consumedCount.get() +
+                ", discarded=" + discardedCount.get() +
+                '}';
+    }
+
+    /**
+     * 帧处理
+     *
+     * @param <F> 帧的类型
+     */
+    public interface FrameHandler<F> {
+        /**
+         * 处理帧
+         *
+         * @param frame 帧
+         */
+        void handle(@NonNull F frame);
+    }
+}
@@ -0,0 +1,88 @@
+package com.android.detection.detection.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 行分条并行执行：将图像的行划分为若干条，在 {@link ForkJoinPool} 中并行处理
+ */
+final class RowStripes {
+
+    /**
+     * 并行转换的最小像素数，小于该值时并行调度的开销大于收益，直接串行处理
+     */
+    static final int PARALLEL_MIN_PIXELS = 1280 * 720;
+
+    /**
+     * 每条至少包含的行数
+     */
+    private static final int MIN_STRIPE_ROWS = 32;
+
+    private RowStripes() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 行处理
+     */
+    interface RowRange {
+        /**
+         * 处理 [start, end) 行
+         */
+        void run(int start, int end);
+    }
+
+    /**
+     * 是否需要并行处理
+     *
+     * @param pool   线程池
+     * @param width  图像的宽
+     * @param height 图像的高
+     * @return 返回{@code true} 表示并行处理
+     */
+    static boolean isParallel(@Nullable ForkJoinPool pool, int width, int height) {
+        return pool != null && pool.getParallelism() > 1 && width * height >= PARALLEL_MIN_PIXELS;
+    }
+
+    /**
+     * 将 [0, rows) 行分条并行处理，返回时所有条均已处理完成
+     *
+     * @param pool  线程池
+     * @param rows  总行数
+     * @param range 行处理
+     */
+    static void run(@NonNull ForkJoinPool pool, int rows, @NonNull RowRange range) {
+        int stripeRows = Math.max(MIN_STRIPE_ROWS, (rows + pool.getParallelism() - 1) / pool.getParallelism());
+        pool.invoke(new StripeAction(0, rows, stripeRows, range));
+    }
+
+    private static final class StripeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final int stripeRows;
+        private final RowRange range;
+
+        StripeAction(int start, int end, int stripeRows, RowRange range) {
+            this.start = start;
+            this.end = end;
+            this.stripeRows = stripeRows;
+            this.range = range;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= stripeRows) {
+                range.run(start, end);
+                return;
+            }
+            int middle = start + (end - start) / 2;
+            invokeAll(new StripeAction(start, middle, stripeRows, range),
+                    new StripeAction(middle, end, stripeRows, range));
+        }
+    }
+}
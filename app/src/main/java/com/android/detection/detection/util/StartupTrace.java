@@ -0,0 +1,142 @@
+package com.android.detection.detection.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动耗时记录：记录相机启动各阶段相对于开始时的耗时，到达最后一个阶段（如：第一帧）时输出一次
+ * <p>
+ * 如：{@code Camera2 startup{discovery(cached)=2ms, opened=148ms, configured=251ms, firstFrame=372ms}}
+ * <p>
+ * 设置了 {@link OnTraceListener} 时交给监听器处理；否则仅在开启调试日志时通过 {@link Log} 输出，
+ * 如：{@code adb shell setprop log.tag.StartupTrace DEBUG}
+ */
+@SuppressWarnings("unused")
+public class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    private final String name;
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private long startNanos;
+    private volatile boolean finished;
+    @Nullable
+    private volatile OnTraceListener listener;
+
+    /**
+     * @param name 名称，如：{@code "Camera2"}
+     */
+    public StartupTrace(@NonNull String name) {
+        this.name = name;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 设置启动耗时监听
+     *
+     * @param listener 启动耗时监听；为空时仅在开启调试日志时输出
+     * @return {@link StartupTrace}
+     */
+    @NonNull
+    public StartupTrace setOnTraceListener(@Nullable OnTraceListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * 重新开始计时，清除已记录的阶段
+     */
+    public synchronized void begin() {
+        startNanos = System.nanoTime();
+        stages.clear();
+        finished = false;
+    }
+
+    /**
+     * 记录一个阶段：从开始到现在的耗时；同一阶段只记录第一次
+     *
+     * @param stage 阶段
+     */
+    public synchronized void mark(@NonNull String stage) {
+        if (!finished && !stages.containsKey(stage)) {
+            stages.put(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 记录一个单独计时的阶段，如：在开始计时之前完成的相机发现
+     *
+     * @param stage 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public synchronized void record(@NonNull String stage, long nanos) {
+        if (!finished) {
+            stages.put(stage, nanos);
+        }
+    }
+
+    /**
+     * 记录最后一个阶段并输出；重新开始计时前只输出一次
+     *
+     * @param stage 阶段
+     */
+    public void finish(@NonNull String stage) {
+        Map<String, Long> snapshot;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            mark(stage);
+            finished = true;
+            snapshot = new LinkedHashMap<>(stages);
+        }
+        OnTraceListener listener = this.listener;
+        if (listener != null) {
+            listener.onTrace(name, snapshot);
+        } else if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, toString());
+        }
+    }
+
+    /**
+     * 是否已到达最后一个阶段；不加锁，可在每一帧上调用
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(name).append(" startup{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : stages.entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(entry.getKey()).append('=')
+                    .append(TimeUnit.NANOSECONDS.toMillis(entry.getValue())).append("ms");
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * 启动耗时监听
+     */
+    public interface OnTraceListener {
+        /**
+         * 到达最后一个阶段时回调，在记录最后一个阶段的线程上执行
+         *
+         * @param name   名称，如：{@code "Camera2"}
+         * @param stages 各阶段相对于开始时的耗时（纳秒），按记录的顺序
+         */
+        void onTrace(@NonNull String name, @NonNull Map<String, Long> stages);
+    }
+}
@@ -0,0 +1,115 @@
+package com.android.detection.detection
+
+import android.graphics.Rect
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.TimeUnit
+
+/**
+ * [BoxTracker] 的预测：匀速外推、最长预测时长、目标超时及按跟踪ID区分目标
+ */
+@RunWith(RobolectricTestRunner::class)
+class BoxTrackerTest {
+
+    private val tracker = BoxTracker()
+    private val out = Rect()
+
+    @Test
+    fun unknownTrackIsNotPredicted() {
+        assertFalse(tracker.predict(1, millis(0), out))
+        assertTrue(tracker.isEmpty())
+    }
+
+    @Test
+    fun firstDetectionIsPredictedInPlace() {
+        tracker.update(1, Rect(10, 20, 110, 220), millis(0))
+
+        assertTrue(tracker.predict(1, millis(50), out))
+        assertEquals(Rect(10, 20, 110, 220), out)
+    }
+
+    @Test
+    fun constantVelocityIsExtrapolated() {
+        // 每100ms向右移动10像素
+        for (i in 0..10) {
+            tracker.update(1, Rect(10 * i, 0, 100 + 10 * i, 100), millis(100L * i))
+        }
+
+        assertTrue(tracker.predict(1, millis(1100), out))
+        assertEquals(110f, out.left.toFloat(), 1f)
+        assertEquals(100f, out.width().toFloat(), 1f)
+        assertEquals(0, out.top)
+        assertEquals(100, out.bottom)
+    }
+
+    @Test
+    fun predictionStopsAtMaxPredictionMillis() {
+        for (i in 0..10) {
+            tracker.update(1, Rect(10 * i, 0, 100 + 10 * i, 100), millis(100L * i))
+        }
+        val capped = Rect()
+        assertTrue(tracker.predict(1, millis(1000 + BoxTracker.DEFAULT_MAX_PREDICTION_MILLIS), capped))
+
+        assertTrue(tracker.predict(1, millis(1500), out))
+        assertEquals(capped, out)
+    }
+
+    @Test
+    fun predictionBeforeDetectionIsNotRewound() {
+        tracker.update(1, Rect(0, 0, 100, 100), millis(0))
+        tracker.update(1, Rect(10, 0, 110, 100), millis(100))
+        val current = Rect()
+        assertTrue(tracker.predict(1, millis(100), current))
+
+        assertTrue(tracker.predict(1, millis(50), out))
+        assertEquals(current, out)
+    }
+
+    @Test
+    fun sameTimestampTakesLatestDetection() {
+        tracker.update(1, Rect(0, 0, 100, 100), millis(0))
+        tracker.update(1, Rect(40, 40, 80, 80), millis(0))
+
+        assertTrue(tracker.predict(1, millis(0), out))
+        assertEquals(Rect(40, 40, 80, 80), out)
+    }
+
+    @Test
+    fun expiredTrackIsRemoved() {
+        tracker.update(1, Rect(0, 0, 100, 100), millis(0))
+
+        assertTrue(tracker.predict(1, millis(BoxTracker.DEFAULT_EXPIRE_MILLIS), out))
+        assertFalse(tracker.predict(1, millis(BoxTracker.DEFAULT_EXPIRE_MILLIS + 1), out))
+        assertTrue(tracker.isEmpty())
+    }
+
+    @Test
+    fun tracksAreSeparatedByTrackingId() {
+        tracker.update(1, Rect(0, 0, 10, 10), millis(0))
+        tracker.update(2, Rect(50, 50, 70, 70), millis(0))
+        tracker.update(null, Rect(100, 100, 130, 130), millis(0))
+
+        assertTrue(tracker.predict(1, millis(10), out))
+        assertEquals(Rect(0, 0, 10, 10), out)
+        assertTrue(tracker.predict(2, millis(10), out))
+        assertEquals(Rect(50, 50, 70, 70), out)
+        assertTrue(tracker.predict(null, millis(10), out))
+        assertEquals(Rect(100, 100, 130, 130), out)
+    }
+
+    @Test
+    fun clearRemovesAllTracks() {
+        tracker.update(1, Rect(0, 0, 10, 10), millis(0))
+        tracker.update(2, Rect(50, 50, 70, 70), millis(0))
+
+        tracker.clear()
+        assertTrue(tracker.isEmpty())
+        assertFalse(tracker.predict(1, millis(10), out))
+    }
+
+    private fun millis(millis: Long): Long = TimeUnit.MILLISECONDS.toNanos(millis)
+}
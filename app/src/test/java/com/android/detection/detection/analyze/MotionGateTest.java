@@ -0,0 +1,141 @@
+package com.android.detection.detection.analyze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link MotionGate} 的跳过判断：连续跳过的上限、参考帧只在实际检测的帧上更新及 {@link MotionGate#reset()}
+ */
+public class MotionGateTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Test
+    public void firstFrameIsNeverSkipped() {
+        MotionGate gate = new MotionGate();
+
+        assertFalse(gate.shouldSkip(frame(100), WIDTH, HEIGHT));
+        assertEquals(1, gate.getPassedCount());
+        assertEquals(0, gate.getSkippedCount());
+    }
+
+    @Test
+    public void skipCapForcesDetection() {
+        MotionGate gate = new MotionGate().setMaxSkipFrames(3);
+        byte[] still = frame(100);
+
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+            }
+            // 连续跳过的帧数达到上限，画面未变也要检测
+            assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        }
+        assertEquals(6, gate.getSkippedCount());
+        assertEquals(3, gate.getPassedCount());
+    }
+
+    @Test
+    public void zeroSkipCapNeverSkips() {
+        MotionGate gate = new MotionGate().setMaxSkipFrames(0);
+        byte[] still = frame(100);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        }
+        assertEquals(0, gate.getSkippedCount());
+    }
+
+    @Test
+    public void referenceOnlyMovesOnPassedFrames() {
+        MotionGate gate = new MotionGate().setThreshold(4F);
+
+        assertFalse(gate.shouldSkip(frame(100), WIDTH, HEIGHT));
+        assertTrue(gate.shouldSkip(frame(103), WIDTH, HEIGHT));
+        assertEquals(3F, gate.getLastDifference(), 0F);
+        // 与上一次检测的帧相比，而不是与跳过的帧相比：缓慢漂移累积到阈值后仍会检测
+        assertFalse(gate.shouldSkip(frame(106), WIDTH, HEIGHT));
+        assertEquals(6F, gate.getLastDifference(), 0F);
+        // 检测过的帧成为新的参考帧
+        assertTrue(gate.shouldSkip(frame(108), WIDTH, HEIGHT));
+        assertEquals(2F, gate.getLastDifference(), 0F);
+    }
+
+    @Test
+    public void resetForcesNextFrame() {
+        MotionGate gate = new MotionGate();
+        byte[] still = frame(100);
+
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+        gate.reset();
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertEquals(2, gate.getPassedCount());
+        assertEquals(2, gate.getSkippedCount());
+    }
+
+    @Test
+    public void resetRestartsSkipCap() {
+        MotionGate gate = new MotionGate().setMaxSkipFrames(2);
+        byte[] still = frame(100);
+
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+        gate.reset();
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+        // 重置后重新计数，可再连续跳过两帧
+        assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertTrue(gate.shouldSkip(still, WIDTH, HEIGHT));
+        assertFalse(gate.shouldSkip(still, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void sizeChangeForcesDetection() {
+        MotionGate gate = new MotionGate();
+
+        assertFalse(gate.shouldSkip(frame(100), WIDTH, HEIGHT));
+        assertFalse(gate.shouldSkip(frame(100, HEIGHT, WIDTH), HEIGHT, WIDTH));
+        assertTrue(gate.shouldSkip(frame(100, HEIGHT, WIDTH), HEIGHT, WIDTH));
+    }
+
+    @Test
+    public void byteBufferMatchesArray() {
+        MotionGate arrayGate = new MotionGate();
+        MotionGate bufferGate = new MotionGate();
+        int[] lumas = {100, 102, 110, 111, 111, 90};
+
+        for (int luma : lumas) {
+            byte[] nv21 = frame(luma);
+            ByteBuffer direct = ByteBuffer.allocateDirect(nv21.length);
+            direct.put(nv21).flip();
+            assertEquals(arrayGate.shouldSkip(nv21, WIDTH, HEIGHT),
+                    bufferGate.shouldSkip(direct, WIDTH, HEIGHT));
+            assertEquals(0, direct.position());
+        }
+        assertEquals(arrayGate.getSkippedCount(), bufferGate.getSkippedCount());
+        assertEquals(arrayGate.getPassedCount(), bufferGate.getPassedCount());
+    }
+
+    private static byte[] frame(int luma) {
+        return frame(luma, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 亮度均匀的NV21帧
+     */
+    private static byte[] frame(int luma, int width, int height) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        Arrays.fill(nv21, 0, width * height, (byte) luma);
+        Arrays.fill(nv21, width * height, nv21.length, (byte) 128);
+        return nv21;
+    }
+}
@@ -0,0 +1,199 @@
+package com.android.detection.detection.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AutoCaptureEngine} 的触发条件：连续稳定次数、抖动、防抖、冷却及目标离开取景框后才再次拍摄
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AutoCaptureEngineTest {
+
+    private static final RectF WINDOW = new RectF(0, 0, 100, 100);
+    private static final Integer TARGET = 1;
+
+    /**
+     * 每次触发的帧序号
+     */
+    private final List<Long> triggers = new ArrayList<>();
+    private long lastTimeToCaptureNanos;
+
+    private AutoCaptureEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new AutoCaptureEngine((sequence, timeToCaptureNanos) -> {
+            triggers.add(sequence);
+            lastTimeToCaptureNanos = timeToCaptureNanos;
+        })
+                .setCaptureWindow(WINDOW)
+                .setStableFrames(3)
+                .setDebounceMillis(0)
+                .setCooldownMillis(0);
+    }
+
+    @Test
+    public void triggersAfterStableFrames() {
+        assertFalse(update(inside(), TARGET, 1, 0));
+        assertFalse(update(inside(), TARGET, 2, 10));
+        assertTrue(update(inside(), TARGET, 3, 20));
+
+        assertEquals(1, triggers.size());
+        assertEquals(3L, (long) triggers.get(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), lastTimeToCaptureNanos);
+        assertEquals(1, engine.getMetrics().getCaptures());
+        assertEquals(3, engine.getMetrics().getAnalyses());
+    }
+
+    @Test
+    public void noWindowNeverTriggers() {
+        engine.setCaptureWindow(null);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(update(inside(), TARGET, i, i * 10));
+        }
+        assertTrue(triggers.isEmpty());
+    }
+
+    @Test
+    public void insideWindow() {
+        assertTrue(engine.isInsideWindow(new Rect(0, 0, 100, 100)));
+        assertTrue(engine.isInsideWindow(inside()));
+        assertFalse(engine.isInsideWindow(new Rect(-1, 10, 50, 50)));
+        assertFalse(engine.isInsideWindow(new Rect(10, 10, 101, 50)));
+        assertFalse(engine.isInsideWindow(null));
+    }
+
+    @Test
+    public void jitterRestartsStreak() {
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        // 中心移动了检测框尺寸的 1/4，超过抖动阈值
+        assertFalse(update(new Rect(20, 10, 60, 50), TARGET, 3, 20));
+        assertEquals(1, engine.getStableCount());
+        assertEquals(0.25F, engine.getLastJitter(), 1e-6F);
+
+        assertFalse(update(new Rect(20, 10, 60, 50), TARGET, 4, 30));
+        assertTrue(update(new Rect(20, 10, 60, 50), TARGET, 5, 40));
+        assertEquals(1, engine.getMetrics().getJitterResets());
+    }
+
+    @Test
+    public void smallJitterKeepsStreak() {
+        update(inside(), TARGET, 1, 0);
+        update(new Rect(11, 10, 51, 50), TARGET, 2, 10);
+        assertTrue(update(new Rect(10, 11, 50, 51), TARGET, 3, 20));
+    }
+
+    @Test
+    public void leavingWindowRestartsStreak() {
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        assertFalse(update(new Rect(80, 10, 120, 50), TARGET, 3, 20));
+        assertEquals(0, engine.getStableCount());
+        assertEquals(1, engine.getMetrics().getExitResets());
+
+        assertFalse(update(inside(), TARGET, 4, 30));
+        assertFalse(update(inside(), TARGET, 5, 40));
+        assertTrue(update(inside(), TARGET, 6, 50));
+        // 从重新进入取景框开始计时
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), lastTimeToCaptureNanos);
+    }
+
+    @Test
+    public void waitsForTargetToLeave() {
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        assertTrue(update(inside(), TARGET, 3, 20));
+        // 同一目标停留在取景框内，不重复拍摄
+        for (int i = 4; i < 20; i++) {
+            assertFalse(update(inside(), TARGET, i, i * 10));
+        }
+
+        assertFalse(update(null, null, 20, 200));
+        update(inside(), TARGET, 21, 210);
+        update(inside(), TARGET, 22, 220);
+        assertTrue(update(inside(), TARGET, 23, 230));
+        assertEquals(2, triggers.size());
+    }
+
+    @Test
+    public void newTargetDoesNotWaitForExit() {
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        assertTrue(update(inside(), TARGET, 3, 20));
+
+        assertFalse(update(inside(), 2, 4, 30));
+        assertFalse(update(inside(), 2, 5, 40));
+        assertTrue(update(inside(), 2, 6, 50));
+    }
+
+    @Test
+    public void cooldownDelaysNextTrigger() {
+        engine.setCooldownMillis(1000);
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        assertTrue(update(inside(), TARGET, 3, 20));
+
+        update(inside(), 2, 4, 30);
+        update(inside(), 2, 5, 40);
+        assertFalse(update(inside(), 2, 6, 50));
+        assertFalse(update(inside(), 2, 7, 1019));
+        assertTrue(update(inside(), 2, 8, 1020));
+    }
+
+    @Test
+    public void debounceDelaysTrigger() {
+        engine.setDebounceMillis(300);
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        assertFalse(update(inside(), TARGET, 3, 20));
+        assertFalse(update(inside(), TARGET, 4, 299));
+        assertTrue(update(inside(), TARGET, 5, 300));
+    }
+
+    @Test
+    public void disabledTracksButNeverTriggers() {
+        engine.setEnabled(false);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(update(inside(), TARGET, i, i * 10));
+        }
+        assertEquals(5, engine.getStableCount());
+
+        // 禁用期间已稳定，启用后的下一次分析即触发
+        engine.setEnabled(true);
+        assertTrue(update(inside(), TARGET, 5, 50));
+    }
+
+    @Test
+    public void resetClearsTracking() {
+        update(inside(), TARGET, 1, 0);
+        update(inside(), TARGET, 2, 10);
+        engine.reset();
+        assertEquals(0, engine.getStableCount());
+
+        assertFalse(update(inside(), TARGET, 3, 20));
+        assertFalse(update(inside(), TARGET, 4, 30));
+        assertTrue(update(inside(), TARGET, 5, 40));
+    }
+
+    private boolean update(Rect bounds, Integer trackingId, long sequence, long timeMillis) {
+        return engine.update(bounds, trackingId, sequence, TimeUnit.MILLISECONDS.toNanos(timeMillis));
+    }
+
+    private static Rect inside() {
+        return new Rect(10, 10, 50, 50);
+    }
+}
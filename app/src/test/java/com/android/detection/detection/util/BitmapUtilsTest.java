@@ -0,0 +1,225 @@
+package com.android.detection.detection.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * {@link BitmapUtils#nv21ToArgb(byte[], int, int, int, int[])} 与浮点参考转换的对比
+ */
+public class BitmapUtilsTest {
+
+    /**
+     * 定点转换与浮点参考转换每个通道允许的最大误差
+     */
+    private static final int TOLERANCE = 1;
+
+    private static final int[] ROTATIONS = {0, 90, 180, 270, -90};
+
+    /**
+     * 标准彩条：白、黄、青、绿、品红、红、蓝、黑
+     */
+    private static final int[] COLOR_BARS = {
+            0xFFFFFF, 0xFFFF00, 0x00FFFF, 0x00FF00, 0xFF00FF, 0xFF0000, 0x0000FF, 0x000000
+    };
+
+    @Test
+    public void black() {
+        byte[] nv21 = uniform(8, 4, 0, 128, 128);
+        for (int rotation : ROTATIONS) {
+            int[] argb = convert(nv21, 8, 4, rotation);
+            for (int pixel : argb) {
+                assertEquals(0xFF000000, pixel);
+            }
+        }
+    }
+
+    @Test
+    public void white() {
+        byte[] nv21 = uniform(8, 4, 255, 128, 128);
+        for (int rotation : ROTATIONS) {
+            int[] argb = convert(nv21, 8, 4, rotation);
+            for (int pixel : argb) {
+                assertEquals(0xFFFFFFFF, pixel);
+            }
+        }
+    }
+
+    @Test
+    public void colorBars() {
+        int barWidth = 4;
+        int width = COLOR_BARS.length * barWidth;
+        int height = 6;
+        byte[] nv21 = colorBars(barWidth, height);
+        for (int rotation : ROTATIONS) {
+            assertMatchesReference(nv21, width, height, rotation);
+        }
+        // 彩条往返转换后应接近原色
+        int[] argb = convert(nv21, width, height, 0);
+        for (int i = 0; i < COLOR_BARS.length; i++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = i * barWidth; x < (i + 1) * barWidth; x++) {
+                    assertChannels("bar " + i, 0xFF000000 | COLOR_BARS[i], argb[y * width + x], 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomEvenSize() {
+        Random random = new Random(1);
+        for (int rotation : ROTATIONS) {
+            byte[] nv21 = random(random, 16, 10);
+            assertMatchesReference(nv21, 16, 10, rotation);
+        }
+    }
+
+    @Test
+    public void oddSizes() {
+        Random random = new Random(2);
+        int[][] sizes = {{1, 1}, {3, 2}, {5, 3}, {7, 5}, {6, 3}, {9, 4}};
+        for (int[] size : sizes) {
+            for (int rotation : ROTATIONS) {
+                byte[] nv21 = random(random, size[0], size[1]);
+                assertMatchesReference(nv21, size[0], size[1], rotation);
+            }
+        }
+    }
+
+    @Test
+    public void tooSmallInput() {
+        try {
+            BitmapUtils.nv21ToArgb(new byte[5 * 3 + 6 * 2 - 1], 5, 3, 0, new int[5 * 3]);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static void assertMatchesReference(byte[] nv21, int width, int height, int rotation) {
+        int[] actual = convert(nv21, width, height, rotation);
+        int[] expected = reference(nv21, width, height, rotation);
+        for (int i = 0; i < expected.length; i++) {
+            assertChannels(width + "x" + height + " rotation " + rotation + " pixel " + i,
+                    expected[i], actual[i], TOLERANCE);
+        }
+    }
+
+    private static void assertChannels(String message, int expected, int actual, int tolerance) {
+        assertEquals(message + " alpha", expected >>> 24, actual >>> 24);
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int difference = Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF));
+            if (difference > tolerance) {
+                fail(message + String.format(": expected %08X but was %08X", expected, actual));
+            }
+        }
+    }
+
+    private static int[] convert(byte[] nv21, int width, int height, int rotation) {
+        int[] argb = new int[width * height];
+        BitmapUtils.nv21ToArgb(nv21, width, height, rotation, argb);
+        return argb;
+    }
+
+    /**
+     * 浮点的全范围BT.601转换，逐像素按坐标旋转
+     */
+    private static int[] reference(byte[] nv21, int width, int height, int rotation) {
+        int uvRowSize = (width + 1) & ~1;
+        boolean swap = ((rotation % 360) + 360) % 180 != 0;
+        int outWidth = swap ? height : width;
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int uvIndex = width * height + (y / 2) * uvRowSize + (x / 2) * 2;
+                double luma = nv21[y * width + x] & 0xFF;
+                double v = (nv21[uvIndex] & 0xFF) - 128;
+                double u = (nv21[uvIndex + 1] & 0xFF) - 128;
+                int r = clamp(luma + 1.402 * v);
+                int g = clamp(luma - 0.344136 * u - 0.714136 * v);
+                int b = clamp(luma + 1.772 * u);
+
+                int outX;
+                int outY;
+                switch (((rotation % 360) + 360) % 360) {
+                    case 90:
+                        outX = height - 1 - y;
+                        outY = x;
+                        break;
+                    case 180:
+                        outX = width - 1 - x;
+                        outY = height - 1 - y;
+                        break;
+                    case 270:
+                        outX = y;
+                        outY = width - 1 - x;
+                        break;
+                    default:
+                        outX = x;
+                        outY = y;
+                        break;
+                }
+                argb[outY * outWidth + outX] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return argb;
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    private static int nv21Size(int width, int height) {
+        return width * height + ((width + 1) & ~1) * ((height + 1) / 2);
+    }
+
+    private static byte[] uniform(int width, int height, int luma, int u, int v) {
+        byte[] nv21 = new byte[nv21Size(width, height)];
+        int imageSize = width * height;
+        for (int i = 0; i < imageSize; i++) {
+            nv21[i] = (byte) luma;
+        }
+        for (int i = imageSize; i < nv21.length; i += 2) {
+            nv21[i] = (byte) v;
+            nv21[i + 1] = (byte) u;
+        }
+        return nv21;
+    }
+
+    /**
+     * 按全范围BT.601将彩条转为NV21，每个彩条的宽为偶数，色度不跨彩条
+     */
+    private static byte[] colorBars(int barWidth, int height) {
+        int width = COLOR_BARS.length * barWidth;
+        byte[] nv21 = new byte[nv21Size(width, height)];
+        int imageSize = width * height;
+        for (int x = 0; x < width; x++) {
+            int rgb = COLOR_BARS[x / barWidth];
+            double r = (rgb >> 16) & 0xFF;
+            double g = (rgb >> 8) & 0xFF;
+            double b = rgb & 0xFF;
+            int luma = clamp(0.299 * r + 0.587 * g + 0.114 * b);
+            for (int y = 0; y < height; y++) {
+                nv21[y * width + x] = (byte) luma;
+            }
+            if (x % 2 == 0) {
+                int u = clamp(128 - 0.168736 * r - 0.331264 * g + 0.5 * b);
+                int v = clamp(128 + 0.5 * r - 0.418688 * g - 0.081312 * b);
+                for (int row = 0; row < height / 2; row++) {
+                    nv21[imageSize + row * width + x] = (byte) v;
+                    nv21[imageSize + row * width + x + 1] = (byte) u;
+                }
+            }
+        }
+        return nv21;
+    }
+
+    private static byte[] random(Random random, int width, int height) {
+        byte[] nv21 = new byte[nv21Size(width, height)];
+        random.nextBytes(nv21);
+        return nv21;
+    }
+}
@@ -0,0 +1,150 @@
+package com.android.detection.detection.util;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link ImageUtils#yuv_420_888toNv21(ByteBuffer, int, ByteBuffer, int, int, ByteBuffer, int, int, int, int, byte[])}
+ * 在不同UV平面布局下的输出，特别是UV平面布局的检测不受帧内容影响
+ */
+public class ImageUtilsTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int CHROMA_WIDTH = WIDTH / 2;
+    private static final int CHROMA_HEIGHT = HEIGHT / 2;
+    private static final int ROW_STRIDE = WIDTH + 4;
+
+    @After
+    public void tearDown() {
+        ImageUtils.resetPlaneLayout();
+    }
+
+    @Test
+    public void nv21Planes() {
+        Random random = new Random(1);
+        for (int i = 0; i < 3; i++) {
+            assertConverts(new Planes(random, false, false));
+        }
+    }
+
+    @Test
+    public void nv12Planes() {
+        Random random = new Random(2);
+        for (int i = 0; i < 3; i++) {
+            assertConverts(new Planes(random, true, false));
+        }
+    }
+
+    @Test
+    public void grayFrameDoesNotDecideLayout() {
+        Random random = new Random(3);
+        // 开始时的灰帧：U、V均为128，NV12与NV21无法区分
+        assertConverts(new Planes(random, true, true));
+        assertConverts(new Planes(random, true, false));
+        assertConverts(new Planes(random, true, true));
+        assertConverts(new Planes(random, true, false));
+    }
+
+    @Test
+    public void resetAfterSwitchingLayout() {
+        Random random = new Random(4);
+        assertConverts(new Planes(random, false, false));
+        // 切换到几何参数相同、布局不同的相机
+        ImageUtils.resetPlaneLayout();
+        assertConverts(new Planes(random, true, false));
+        ImageUtils.resetPlaneLayout();
+        assertConverts(new Planes(random, false, false));
+    }
+
+    private static void assertConverts(Planes planes) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT + 2 * CHROMA_WIDTH * CHROMA_HEIGHT];
+        ImageUtils.yuv_420_888toNv21(
+                planes.y, ROW_STRIDE,
+                planes.u, ROW_STRIDE, 2,
+                planes.v, ROW_STRIDE, 2,
+                WIDTH, HEIGHT, nv21);
+        assertArrayEquals(planes.expected, nv21);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(nv21.length);
+        ImageUtils.yuv_420_888toNv21(
+                planes.y, ROW_STRIDE,
+                planes.u, ROW_STRIDE, 2,
+                planes.v, ROW_STRIDE, 2,
+                WIDTH, HEIGHT, direct);
+        byte[] directBytes = new byte[direct.remaining()];
+        direct.get(directBytes);
+        assertArrayEquals(planes.expected, directBytes);
+    }
+
+    /**
+     * 半平面的YUV_420_888平面：U、V平面为同一块内存错开一个字节的视图，并带有行填充
+     */
+    private static final class Planes {
+        private final ByteBuffer y;
+        private final ByteBuffer u;
+        private final ByteBuffer v;
+        private final byte[] expected;
+
+        Planes(Random random, boolean uFirst, boolean gray) {
+            byte[] luma = new byte[ROW_STRIDE * (HEIGHT - 1) + WIDTH];
+            random.nextBytes(luma);
+            byte[] uValues = new byte[CHROMA_WIDTH * CHROMA_HEIGHT];
+            byte[] vValues = new byte[CHROMA_WIDTH * CHROMA_HEIGHT];
+            if (gray) {
+                Arrays.fill(uValues, (byte) 128);
+                Arrays.fill(vValues, (byte) 128);
+            } else {
+                random.nextBytes(uValues);
+                random.nextBytes(vValues);
+            }
+
+            int size = ROW_STRIDE * (CHROMA_HEIGHT - 1) + 2 * CHROMA_WIDTH;
+            ByteBuffer chroma = ByteBuffer.allocateDirect(size);
+            byte[] padding = new byte[ROW_STRIDE - 2 * CHROMA_WIDTH];
+            if (gray) {
+                Arrays.fill(padding, (byte) 128);
+            } else {
+                random.nextBytes(padding);
+            }
+            for (int row = 0; row < CHROMA_HEIGHT; row++) {
+                for (int col = 0; col < CHROMA_WIDTH; col++) {
+                    int index = row * CHROMA_WIDTH + col;
+                    chroma.put(uFirst ? uValues[index] : vValues[index]);
+                    chroma.put(uFirst ? vValues[index] : uValues[index]);
+                }
+                if (row < CHROMA_HEIGHT - 1) {
+                    chroma.put(padding);
+                }
+            }
+            ByteBuffer first = slice(chroma, 0, size - 1);
+            ByteBuffer second = slice(chroma, 1, size - 1);
+            this.y = ByteBuffer.allocateDirect(luma.length).put(luma);
+            this.y.flip();
+            this.u = uFirst ? first : second;
+            this.v = uFirst ? second : first;
+
+            expected = new byte[WIDTH * HEIGHT + 2 * CHROMA_WIDTH * CHROMA_HEIGHT];
+            for (int row = 0; row < HEIGHT; row++) {
+                System.arraycopy(luma, row * ROW_STRIDE, expected, row * WIDTH, WIDTH);
+            }
+            int position = WIDTH * HEIGHT;
+            for (int i = 0; i < uValues.length; i++) {
+                expected[position++] = vValues[i];
+                expected[position++] = uValues[i];
+            }
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(offset).limit(offset + length);
+            return duplicate.slice();
+        }
+    }
+}
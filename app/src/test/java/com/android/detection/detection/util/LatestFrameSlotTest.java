@@ -0,0 +1,167 @@
+package com.android.detection.detection.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link LatestFrameSlot} 在生产者、消费者并发运行时的交接：每一帧恰好被消费或丢弃一次，不丢失、不泄漏、不重复交付
+ */
+public class LatestFrameSlotTest {
+
+    private static final int FRAME_COUNT = 200_000;
+
+    private ExecutorService consumerExecutor;
+
+    /**
+     * 每一帧被消费的次数
+     */
+    private AtomicIntegerArray consumed;
+
+    /**
+     * 每一帧被丢弃的次数
+     */
+    private AtomicIntegerArray discarded;
+
+    /**
+     * 消费者上一次取到的帧：消费者取到的帧应按放入的顺序递增
+     */
+    private int lastConsumed;
+    private final AtomicReference<String> error = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        consumerExecutor = Executors.newSingleThreadExecutor();
+        consumed = new AtomicIntegerArray(FRAME_COUNT);
+        discarded = new AtomicIntegerArray(FRAME_COUNT);
+        lastConsumed = -1;
+    }
+
+    @After
+    public void tearDown() {
+        consumerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void everyFrameIsConsumedOrDiscardedExactlyOnce() throws Exception {
+        LatestFrameSlot<Integer> slot = createSlot(0);
+        runProducer(slot, 0);
+        awaitConsumer();
+
+        assertBalanced(slot);
+        // 最后一帧不会被替换，一定被消费
+        assertEquals(1, consumed.get(FRAME_COUNT - 1));
+        assertTrue(slot.getConsumedCount() > 0);
+    }
+
+    @Test
+    public void slowConsumerOnlySeesLatestFrames() throws Exception {
+        LatestFrameSlot<Integer> slot = createSlot(20_000);
+        runProducer(slot, 0);
+        awaitConsumer();
+
+        assertBalanced(slot);
+        assertEquals(1, consumed.get(FRAME_COUNT - 1));
+        assertTrue(slot.getDiscardedCount() > 0);
+    }
+
+    @Test
+    public void clearWhileConsuming() throws Exception {
+        LatestFrameSlot<Integer> slot = createSlot(0);
+        // 生产者每放入若干帧清空一次，与消费者争抢槽中的帧
+        runProducer(slot, 7);
+        slot.clear();
+        awaitConsumer();
+
+        assertBalanced(slot);
+    }
+
+    @Test
+    public void rejectedDrainDiscardsFrame() {
+        LatestFrameSlot<Integer> slot = new LatestFrameSlot<>(
+                runnable -> {
+                    throw new RejectedExecutionException();
+                },
+                frame -> consumed.incrementAndGet(frame),
+                frame -> discarded.incrementAndGet(frame));
+        for (int i = 0; i < 10; i++) {
+            slot.offer(i);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, consumed.get(i));
+            assertEquals(1, discarded.get(i));
+        }
+        assertEquals(10, slot.getDiscardedCount());
+    }
+
+    /**
+     * @param consumeSpinNanos 消费者处理每一帧的耗时
+     */
+    private LatestFrameSlot<Integer> createSlot(long consumeSpinNanos) {
+        return new LatestFrameSlot<>(consumerExecutor, frame -> {
+            if (frame <= lastConsumed) {
+                error.compareAndSet(null, "frame " + frame + " consumed after " + lastConsumed);
+            }
+            lastConsumed = frame;
+            consumed.incrementAndGet(frame);
+            long end = System.nanoTime() + consumeSpinNanos;
+            while (System.nanoTime() - end < 0) {
+                // 模拟检测耗时
+            }
+        }, frame -> discarded.incrementAndGet(frame));
+    }
+
+    /**
+     * 在单独的生产者线程上放入全部帧
+     *
+     * @param clearInterval 每放入多少帧清空一次槽；为0时不清空
+     */
+    private void runProducer(LatestFrameSlot<Integer> slot, int clearInterval) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                slot.offer(i);
+                if (clearInterval > 0 && i % clearInterval == 0) {
+                    slot.clear();
+                }
+            }
+            done.countDown();
+        }, "Producer");
+        producer.start();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 等待消费者执行完所有已提交的取帧任务
+     */
+    private void awaitConsumer() throws InterruptedException {
+        consumerExecutor.shutdown();
+        assertTrue(consumerExecutor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    private void assertBalanced(LatestFrameSlot<Integer> slot) {
+        assertNull(error.get());
+        long consumedCount = 0;
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            int handled = consumed.get(i) + discarded.get(i);
+            assertEquals("frame " + i + " handled " + handled + " times", 1, handled);
+            consumedCount += consumed.get(i);
+        }
+        assertEquals(FRAME_COUNT, slot.getOfferedCount());
+        assertEquals(consumedCount, slot.getConsumedCount());
+        assertEquals(FRAME_COUNT, slot.getConsumedCount() + slot.getDiscardedCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.android.detection.detection.benchmark;
+
+import android.media.Image;
+
+import com.android.detection.detection.util.ImageUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ImageUtils#yuv_420_888toNv21(Image, byte[])} 的整块复制快速路径与原来逐像素交错的实现对比
+ * <p>
+ * NV21布局时色度整块复制，Y平面无行填充时整块复制；其他布局仍逐像素交错，但行缓冲区按线程复用，不再每次分配。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Nv21FastPathBenchmark {
+
+    @Param({"640x480", "1440x1920", "1920x2560"})
+    public String size;
+
+    @Param({"NV21", "PLANAR"})
+    public SyntheticImage.Layout layout;
+
+    @Param({"0", "64"})
+    public int rowPadding;
+
+    private Image image;
+    private byte[] nv21;
+
+    @Setup
+    public void setUp() {
+        int[] dimensions = SyntheticImage.parseSize(size);
+        SyntheticImage synthetic = new SyntheticImage(dimensions[0], dimensions[1], layout, rowPadding);
+        image = synthetic.asImage();
+        nv21 = new byte[synthetic.getNv21Size()];
+        ImageUtils.resetPlaneLayout();
+    }
+
+    @Benchmark
+    public byte[] fastPath() {
+        ImageUtils.yuv_420_888toNv21(image, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public byte[] perPixel() {
+        perPixelToNv21(image, nv21);
+        return nv21;
+    }
+
+    /**
+     * 原来的实现：Y平面逐行复制，U、V平面每次分配行缓冲区后逐像素交错
+     */
+    private static void perPixelToNv21(Image image, byte[] nv21) {
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        yBuffer.rewind();
+        uBuffer.rewind();
+        vBuffer.rewind();
+
+        int ySize = yBuffer.remaining();
+        int position = 0;
+        for (int row = 0; row < image.getHeight(); row++) {
+            yBuffer.get(nv21, position, image.getWidth());
+            position += image.getWidth();
+            yBuffer.position(Math.min(ySize, yBuffer.position() - image.getWidth() + planes[0].getRowStride()));
+        }
+
+        int chromaHeight = image.getHeight() / 2;
+        int chromaWidth = image.getWidth() / 2;
+        int vRowStride = planes[2].getRowStride();
+        int uRowStride = planes[1].getRowStride();
+        int vPixelStride = planes[2].getPixelStride();
+        int uPixelStride = planes[1].getPixelStride();
+
+        byte[] vLineBuffer = new byte[vRowStride];
+        byte[] uLineBuffer = new byte[uRowStride];
+        for (int row = 0; row < chromaHeight; row++) {
+            vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
+            uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
+            int vLineBufferPosition = 0;
+            int uLineBufferPosition = 0;
+            for (int col = 0; col < chromaWidth; col++) {
+                nv21[position++] = vLineBuffer[vLineBufferPosition];
+                nv21[position++] = uLineBuffer[uLineBufferPosition];
+                vLineBufferPosition += vPixelStride;
+                uLineBufferPosition += uPixelStride;
+            }
+        }
+    }
+}
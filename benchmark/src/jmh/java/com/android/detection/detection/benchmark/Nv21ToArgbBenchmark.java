@@ -0,0 +1,58 @@
+package com.android.detection.detection.benchmark;
+
+import com.android.detection.detection.util.BitmapUtils;
+import com.android.detection.detection.util.ImageUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NV21转ARGB并同时旋转（{@link BitmapUtils#nv21ToArgb(byte[], int, int, int, int[])}），输出数组复用
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Nv21ToArgbBenchmark {
+
+    @Param({"640x480", "1440x1920", "1920x2560"})
+    public String size;
+
+    @Param({"0", "90", "180", "270"})
+    public int rotation;
+
+    private int width;
+    private int height;
+    private byte[] nv21;
+    private int[] argb;
+
+    @Setup
+    public void setUp() {
+        int[] dimensions = SyntheticImage.parseSize(size);
+        width = dimensions[0];
+        height = dimensions[1];
+        SyntheticImage synthetic = new SyntheticImage(width, height, SyntheticImage.Layout.NV21, 0);
+        nv21 = new byte[synthetic.getNv21Size()];
+        ImageUtils.yuv_420_888toNv21(synthetic.asImage(), nv21);
+        argb = new int[width * height];
+    }
+
+    @Benchmark
+    public int[] nv21ToArgb() {
+        BitmapUtils.nv21ToArgb(nv21, width, height, rotation, argb);
+        return argb;
+    }
+}
@@ -0,0 +1,212 @@
+package com.android.detection.detection.benchmark;
+
+import android.media.Image;
+
+import androidx.camera.core.ImageInfo;
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * 合成的YUV_420_888图像：平面均为直接缓冲区（与相机输出一致），可按布局及行填充模拟不同设备的像素跨度、行跨度
+ */
+public final class SyntheticImage {
+
+    /**
+     * UV平面布局
+     */
+    public enum Layout {
+        /**
+         * 三平面（I420）：U、V平面各自独立，像素跨度为1
+         */
+        PLANAR,
+        /**
+         * 半平面NV21：U、V平面为同一块VUVU...缓冲区，V平面在前，像素跨度为2
+         */
+        NV21,
+        /**
+         * 半平面NV12：U、V平面为同一块UVUV...缓冲区，U平面在前，像素跨度为2
+         */
+        NV12
+    }
+
+    private final int width;
+    private final int height;
+    private final Plane[] planes;
+
+    /**
+     * @param width      图像的宽
+     * @param height     图像的高
+     * @param layout     UV平面布局
+     * @param rowPadding 每行末尾的填充字节数
+     */
+    SyntheticImage(int width, int height, Layout layout, int rowPadding) {
+        this.width = width;
+        this.height = height;
+        Random random = new Random(width * 31L + height);
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+
+        int yRowStride = width + rowPadding;
+        ByteBuffer y = fill(random, ByteBuffer.allocateDirect(yRowStride * (height - 1) + width));
+
+        Plane u;
+        Plane v;
+        if (layout == Layout.PLANAR) {
+            int rowStride = chromaWidth + rowPadding / 2;
+            int size = rowStride * (chromaHeight - 1) + chromaWidth;
+            u = new Plane(fill(random, ByteBuffer.allocateDirect(size)), rowStride, 1);
+            v = new Plane(fill(random, ByteBuffer.allocateDirect(size)), rowStride, 1);
+        } else {
+            // 两个平面是同一块内存错开一个字节的视图，各自少一个字节
+            int rowStride = 2 * chromaWidth + rowPadding;
+            int size = rowStride * (chromaHeight - 1) + 2 * chromaWidth;
+            ByteBuffer chroma = fill(random, ByteBuffer.allocateDirect(size));
+            ByteBuffer first = slice(chroma, 0, size - 1);
+            ByteBuffer second = slice(chroma, 1, size - 1);
+            boolean nv21 = layout == Layout.NV21;
+            u = new Plane(nv21 ? second : first, rowStride, 2);
+            v = new Plane(nv21 ? first : second, rowStride, 2);
+        }
+        this.planes = new Plane[]{new Plane(y, yRowStride, 1), u, v};
+    }
+
+    /**
+     * 解析 {@code "宽x高"}
+     */
+    static int[] parseSize(String size) {
+        int separator = size.indexOf('x');
+        return new int[]{Integer.parseInt(size.substring(0, separator)), Integer.parseInt(size.substring(separator + 1))};
+    }
+
+    /**
+     * NV21数据的大小
+     */
+    int getNv21Size() {
+        return width * height + 2 * (width / 2) * (height / 2);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return 以 {@link Image.Plane} 提供平面的 {@link Image}
+     */
+    Image asImage() {
+        return new Image() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public Image.Plane[] getPlanes() {
+                return planes;
+            }
+        };
+    }
+
+    /**
+     * @return 以 {@link ImageProxy.PlaneProxy} 提供平面的 {@link ImageProxy}
+     */
+    ImageProxy asImageProxy() {
+        ImageProxy.PlaneProxy[] planeProxies = new ImageProxy.PlaneProxy[planes.length];
+        for (int i = 0; i < planes.length; i++) {
+            Plane plane = planes[i];
+            planeProxies[i] = new ImageProxy.PlaneProxy() {
+                @Override
+                public int getRowStride() {
+                    return plane.getRowStride();
+                }
+
+                @Override
+                public int getPixelStride() {
+                    return plane.getPixelStride();
+                }
+
+                @Override
+                public ByteBuffer getBuffer() {
+                    return plane.getBuffer();
+                }
+            };
+        }
+        Image image = asImage();
+        return new ImageProxy() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public PlaneProxy[] getPlanes() {
+                return planeProxies;
+            }
+
+            @Override
+            public ImageInfo getImageInfo() {
+                return () -> 90;
+            }
+
+            @Override
+            public Image getImage() {
+                return image;
+            }
+        };
+    }
+
+    private static ByteBuffer fill(Random random, ByteBuffer buffer) {
+        byte[] data = new byte[buffer.capacity()];
+        random.nextBytes(data);
+        buffer.put(data).flip();
+        return buffer;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private static final class Plane extends Image.Plane {
+        private final ByteBuffer buffer;
+        private final int rowStride;
+        private final int pixelStride;
+
+        Plane(ByteBuffer buffer, int rowStride, int pixelStride) {
+            this.buffer = buffer;
+            this.rowStride = rowStride;
+            this.pixelStride = pixelStride;
+        }
+
+        @Override
+        public int getRowStride() {
+            return rowStride;
+        }
+
+        @Override
+        public int getPixelStride() {
+            return pixelStride;
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.android.detection.detection.benchmark;
+
+import android.graphics.Rect;
+import android.media.Image;
+
+import androidx.camera.core.ImageProxy;
+
+import com.android.detection.detection.util.BitmapUtils;
+import com.android.detection.detection.util.ImageUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * YUV_420_888转NV21相关的转换：完整帧转换（堆上数组、直接缓冲区）、裁剪及缩小，以及 {@link BitmapUtils} 中的三平面转换
+ * <p>
+ * 每个基准按分辨率、UV平面布局及行填充组合运行；配合 {@code -prof gc} 可得到每次操作分配的字节数（gc.alloc.rate.norm）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YuvConversionBenchmark {
+
+    @Param({"640x480", "1440x1920", "1920x2560"})
+    public String size;
+
+    @Param({"PLANAR", "NV21", "NV12"})
+    public SyntheticImage.Layout layout;
+
+    @Param({"0", "64"})
+    public int rowPadding;
+
+    private Image image;
+    private ImageProxy imageProxy;
+    private byte[] nv21;
+    private ByteBuffer nv21Direct;
+    private Rect crop;
+    private byte[] cropNv21;
+
+    @Setup
+    public void setUp() {
+        int[] dimensions = SyntheticImage.parseSize(size);
+        SyntheticImage synthetic = new SyntheticImage(dimensions[0], dimensions[1], layout, rowPadding);
+        image = synthetic.asImage();
+        imageProxy = synthetic.asImageProxy();
+        nv21 = new byte[synthetic.getNv21Size()];
+        nv21Direct = ByteBuffer.allocateDirect(synthetic.getNv21Size());
+        // 中间一半区域，按缩小2倍对齐
+        int width = synthetic.getWidth();
+        int height = synthetic.getHeight();
+        crop = new Rect(width / 4 / 4 * 4, height / 4 / 4 * 4, width * 3 / 4 / 4 * 4, height * 3 / 4 / 4 * 4);
+        cropNv21 = new byte[crop.width() * crop.height() * 3 / 2];
+    }
+
+    @Benchmark
+    public byte[] imageToNv21() {
+        ImageUtils.yuv_420_888toNv21(image, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public byte[] imageProxyToNv21() {
+        ImageUtils.yuv_420_888toNv21(imageProxy, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public ByteBuffer imageToNv21Direct() {
+        ImageUtils.yuv_420_888toNv21(image, nv21Direct);
+        return nv21Direct;
+    }
+
+    @Benchmark
+    public byte[] imageCropToNv21() {
+        ImageUtils.yuv_420_888toNv21(image, crop, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public byte[] imageCropDownscaleToNv21() {
+        ImageUtils.yuv_420_888toNv21(image, crop, 2, cropNv21);
+        return cropNv21;
+    }
+
+    /**
+     * {@link BitmapUtils#yuv420ThreePlanesToNV21(Image.Plane[], int, int)}：每次分配输出数组，
+     * UV平面不是NV21布局时逐平面 {@code unpackPlane}
+     */
+    @Benchmark
+    public byte[] threePlanesToNv21() {
+        return BitmapUtils.yuv420ThreePlanesToNV21(image.getPlanes(), image.getWidth(), image.getHeight());
+    }
+}
@@ -0,0 +1,17 @@
+package android.content;
+
+import android.net.Uri;
+
+import java.io.InputStream;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public abstract class ContentResolver {
+    public static final String SCHEME_CONTENT = "content";
+    public static final String SCHEME_FILE = "file";
+
+    public final InputStream openInputStream(Uri uri) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,46 @@
+package android.graphics;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译，基准测试不会创建Bitmap
+ */
+public final class Bitmap {
+
+    public enum Config {
+        ARGB_8888
+    }
+
+    private Bitmap() {
+    }
+
+    public static Bitmap createBitmap(int[] colors, int offset, int stride, int width, int height, Config config) {
+        throw new UnsupportedOperationException();
+    }
+
+    public static Bitmap createBitmap(Bitmap source, int x, int y, int width, int height, Matrix m, boolean filter) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isMutable() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Config getConfig() {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getWidth() {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getHeight() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void recycle() {
+        throw new UnsupportedOperationException();
+    }
+}
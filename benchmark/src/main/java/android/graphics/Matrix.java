@@ -0,0 +1,15 @@
+package android.graphics;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public final class Matrix {
+
+    public boolean postRotate(float degrees) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean postScale(float sx, float sy) {
+        throw new UnsupportedOperationException();
+    }
+}
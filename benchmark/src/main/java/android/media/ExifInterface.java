@@ -0,0 +1,27 @@
+package android.media;
+
+import java.io.InputStream;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public final class ExifInterface {
+    public static final String TAG_ORIENTATION = "Orientation";
+    public static final int ORIENTATION_UNDEFINED = 0;
+    public static final int ORIENTATION_NORMAL = 1;
+    public static final int ORIENTATION_FLIP_HORIZONTAL = 2;
+    public static final int ORIENTATION_ROTATE_180 = 3;
+    public static final int ORIENTATION_FLIP_VERTICAL = 4;
+    public static final int ORIENTATION_TRANSPOSE = 5;
+    public static final int ORIENTATION_ROTATE_90 = 6;
+    public static final int ORIENTATION_TRANSVERSE = 7;
+    public static final int ORIENTATION_ROTATE_270 = 8;
+
+    public ExifInterface(InputStream inputStream) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getAttributeInt(String tag, int defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,24 @@
+package android.media;
+
+import java.nio.ByteBuffer;
+
+/**
+ * JVM基准测试使用的替身类：由基准测试提供合成的YUV_420_888平面
+ */
+public abstract class Image {
+
+    public abstract int getWidth();
+
+    public abstract int getHeight();
+
+    public abstract Plane[] getPlanes();
+
+    public abstract static class Plane {
+
+        public abstract int getRowStride();
+
+        public abstract int getPixelStride();
+
+        public abstract ByteBuffer getBuffer();
+    }
+}
@@ -0,0 +1,9 @@
+package android.net;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public abstract class Uri {
+
+    public abstract String getScheme();
+}
@@ -0,0 +1,11 @@
+package android.os;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public final class Build {
+
+    public static final class VERSION_CODES {
+        public static final int N = 24;
+    }
+}
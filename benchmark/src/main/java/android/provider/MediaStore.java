@@ -0,0 +1,21 @@
+package android.provider;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+public final class MediaStore {
+
+    public static final class Images {
+
+        public static final class Media {
+
+            public static Bitmap getBitmap(ContentResolver cr, Uri url) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package androidx.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * JVM基准测试使用的替身类：仅用于编译
+ */
+@Retention(RetentionPolicy.CLASS)
+public @interface Nullable {
+}
@@ -0,0 +1,9 @@
+package androidx.camera.core;
+
+/**
+ * JVM基准测试使用的替身类：只提供转换代码用到的部分
+ */
+public interface ImageInfo {
+
+    int getRotationDegrees();
+}
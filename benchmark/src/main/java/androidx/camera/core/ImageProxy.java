@@ -0,0 +1,30 @@
+package androidx.camera.core;
+
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * JVM基准测试使用的替身类：只提供转换代码用到的部分，由基准测试提供合成的YUV_420_888平面
+ */
+public interface ImageProxy {
+
+    int getWidth();
+
+    int getHeight();
+
+    PlaneProxy[] getPlanes();
+
+    ImageInfo getImageInfo();
+
+    Image getImage();
+
+    interface PlaneProxy {
+
+        int getRowStride();
+
+        int getPixelStride();
+
+        ByteBuffer getBuffer();
+    }
+}